@@ -0,0 +1,52 @@
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Models /api/chat capacity: every request is one blocking downstream call (Dialogflow, Yii2, LLM).
+// Compares Tomcat's default 200 platform threads with one virtual thread per request.
+// Run with: java scripts/VirtualThreadCapacity.java [requests] [downstreamMillis]
+public class VirtualThreadCapacity {
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        long downstreamMillis = args.length > 1 ? Long.parseLong(args[1]) : 250;
+
+        run("platform (200 threads)", Executors.newFixedThreadPool(200), requests, downstreamMillis);
+        run("virtual threads", Executors.newVirtualThreadPerTaskExecutor(), requests, downstreamMillis);
+    }
+
+    private static void run(String mode, ExecutorService executor, int requests, long downstreamMillis)
+            throws InterruptedException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        long[] latencies = new long[requests];
+        CountDownLatch done = new CountDownLatch(requests);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            int request = i;
+            long submitted = System.nanoTime();
+            executor.execute(() -> {
+                peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(downstreamMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                latencies[request] = (System.nanoTime() - submitted) / 1_000_000;
+                done.countDown();
+            });
+        }
+        done.await();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        executor.shutdown();
+
+        Arrays.sort(latencies);
+        System.out.printf("%-24s peak in-flight=%5d  wall=%5dms  throughput=%6.0f req/s  p50=%5dms  p99=%5dms%n",
+                mode, peak.get(), elapsed, requests * 1000.0 / elapsed,
+                latencies[requests / 2], latencies[(int) (requests * 0.99)]);
+    }
+}
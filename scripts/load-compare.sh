@@ -0,0 +1,26 @@
+#!/usr/bin/env bash
+# Compares /api/chat capacity with platform vs virtual request threads against a real deployment.
+# Needs the packaged jar, the usual application config (Dialogflow credentials, Yii2 URL) and `hey`.
+#   ./scripts/load-compare.sh target/dialogflowchat-0.0.1-SNAPSHOT.jar [concurrency] [requests]
+set -euo pipefail
+
+JAR=${1:?path to application jar}
+CONCURRENCY=${2:-400}
+REQUESTS=${3:-4000}
+PORT=${PORT:-8080}
+BODY='{"message":"How many leave days do I have?","employeeId":"LOADTEST"}'
+
+run() {
+  local virtual=$1
+  java -Dspring.threads.virtual.enabled="$virtual" -Dserver.port="$PORT" -jar "$JAR" >/dev/null 2>&1 &
+  local pid=$!
+  trap 'kill $pid 2>/dev/null' RETURN
+  until curl -s -o /dev/null "http://localhost:$PORT/api/chat"; do sleep 1; done
+
+  echo "== spring.threads.virtual.enabled=$virtual (c=$CONCURRENCY, n=$REQUESTS)"
+  hey -c "$CONCURRENCY" -n "$REQUESTS" -m POST -T application/json -d "$BODY" \
+    "http://localhost:$PORT/api/chat" | grep -E "Requests/sec|50%|99%|\[[0-9]+\]"
+}
+
+run false
+run true
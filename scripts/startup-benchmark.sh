@@ -0,0 +1,53 @@
+#!/usr/bin/env bash
+# Measures time-to-first-successful-request: from launching the JVM until POST /api/chat answers 200,
+# for the default startup and for the fast-startup profile (AOT + AppCDS + lazy clients). Needs the
+# usual application config (Dialogflow credentials, Yii2 URL, database) and a jar built with
+#   mvn -Pfast-startup package
+# so the AOT classes are in it. The CDS archive is created by a training run on the first use.
+#   ./scripts/startup-benchmark.sh target/dialogflowchat-0.0.1-SNAPSHOT.jar [runs]
+set -euo pipefail
+
+JAR=${1:?path to application jar}
+RUNS=${2:-5}
+PORT=${PORT:-8080}
+WORK=${WORK:-target/startup-benchmark}
+BODY='{"message":"How many leave days do I have?","employeeId":"STARTUP"}'
+
+# CDS wants the extracted layout: the archive only matches the exact classpath it was trained on
+if [ ! -f "$WORK/app/application.jsa" ]; then
+  rm -rf "$WORK/app"
+  java -Djarmode=tools -jar "$JAR" extract --destination "$WORK/app"
+  (cd "$WORK/app" && java -XX:ArchiveClassesAtExit=application.jsa -Dspring.context.exit=onRefresh \
+    -Dspring.aot.enabled=true -Dspring.profiles.active=fast-startup -jar "$(basename "$JAR")" >/dev/null)
+fi
+
+# Prints milliseconds until the first 200 from /api/chat
+measure() {
+  local start pid
+  start=$(date +%s%N)
+  "$@" -Dserver.port="$PORT" >/dev/null 2>&1 &
+  pid=$!
+  until [ "$(curl -s -o /dev/null -w '%{http_code}' -X POST -H 'Content-Type: application/json' \
+    -d "$BODY" "http://localhost:$PORT/api/chat")" = 200 ]; do
+    kill -0 "$pid" 2>/dev/null || { echo "application exited during startup" >&2; exit 1; }
+    sleep 0.05
+  done
+  echo $(( ($(date +%s%N) - start) / 1000000 ))
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+}
+
+report() {
+  local name=$1
+  shift
+  local times=()
+  for _ in $(seq "$RUNS"); do
+    times+=("$(measure "$@")")
+  done
+  printf '%-14s runs=%s median=%s ms  (all: %s)\n' "$name" "$RUNS" \
+    "$(printf '%s\n' "${times[@]}" | sort -n | awk '{a[NR]=$1} END {print a[int((NR+1)/2)]}')" "${times[*]}"
+}
+
+report default java -jar "$JAR"
+report fast-startup java -XX:SharedArchiveFile="$WORK/app/application.jsa" -Dspring.aot.enabled=true \
+  -Dspring.profiles.active=fast-startup -jar "$WORK/app/$(basename "$JAR")"
@@ -0,0 +1,133 @@
+package com.example.dialogflow.controller;
+
+import com.example.dialogflow.dto.WebhookRequest;
+import com.example.dialogflow.service.WebhookRequestReader;
+import com.example.dialogflow.service.intent.IntentHandler;
+import com.example.dialogflow.service.intent.IntentHandlerRegistry;
+import com.example.dialogflow.service.intent.IntentRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The request-side work of ChatController.webhook on a realistic Dialogflow ES payload. The tree
+// benchmarks (parseTree, convertParameters, endToEnd) are the original JsonNode + convertValue path,
+// kept as the baseline for the streaming WebhookRequestReader (streamingRead, streamingEndToEnd).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WebhookParsingBenchmark {
+
+    static final String PAYLOAD = """
+            {
+              "responseId": "4b6a2f2e-61f3-4c5b-a1f6-3a2a9e0c5d10-19db3199",
+              "queryResult": {
+                "queryText": "how many days of annual leave do I have left",
+                "parameters": {"leaveType": "annual", "date-period": ""},
+                "allRequiredParamsPresent": true,
+                "fulfillmentText": "",
+                "fulfillmentMessages": [{"text": {"text": [""]}}],
+                "outputContexts": [
+                  {"name": "projects/hr-bot/agent/sessions/8f14e45f-ceea-467f-a8c2-1b0d43c9a2e1/contexts/leave-followup",
+                   "lifespanCount": 2, "parameters": {"leaveType": "annual", "leaveType.original": "annual"}},
+                  {"name": "projects/hr-bot/agent/sessions/8f14e45f-ceea-467f-a8c2-1b0d43c9a2e1/contexts/__system_counters__",
+                   "parameters": {"no-input": 0, "no-match": 0}}
+                ],
+                "intent": {
+                  "name": "projects/hr-bot/agent/intents/0d1e7b7e-8a45-4a1c-9f1c-2f4c1d0c7a55",
+                  "displayName": "LeavePolicyInquiry"
+                },
+                "intentDetectionConfidence": 0.92,
+                "languageCode": "en"
+              },
+              "originalDetectIntentRequest": {"source": "DIALOGFLOW_CONSOLE", "payload": {}},
+              "session": "projects/hr-bot/agent/sessions/8f14e45f-ceea-467f-a8c2-1b0d43c9a2e1"
+            }
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] payload;
+    private JsonNode tree;
+    private IntentHandlerRegistry registry;
+    private IntentRequest intentRequest;
+    private WebhookRequestReader webhookRequestReader;
+
+    @Setup
+    public void setUp() throws Exception {
+        payload = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        tree = objectMapper.readTree(payload);
+        webhookRequestReader = new WebhookRequestReader(objectMapper);
+        registry = new IntentHandlerRegistry(List.of(new IntentHandler() {
+            @Override
+            public String intentName() {
+                return "LeavePolicyInquiry";
+            }
+
+            @Override
+            public List<String> requiredParameters() {
+                return List.of("leaveType");
+            }
+
+            @Override
+            public String handle(IntentRequest request) {
+                return "You have 12 days of annual leave left.";
+            }
+        }));
+        intentRequest = new IntentRequest("LeavePolicyInquiry", "s1", "E1", "text", Map.of("leaveType", "annual"));
+    }
+
+    @Benchmark
+    public JsonNode parseTree() throws Exception {
+        return objectMapper.readTree(payload);
+    }
+
+    @Benchmark
+    public Map<?, ?> convertParameters() {
+        return objectMapper.convertValue(tree.path("queryResult").path("parameters"), Map.class);
+    }
+
+    @Benchmark
+    public String dispatch() {
+        return registry.dispatch(intentRequest);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public String endToEnd() throws Exception {
+        JsonNode request = objectMapper.readTree(payload);
+        String intentName = request.path("queryResult").path("intent").path("displayName").asText();
+        String session = request.path("session").asText();
+        String sessionId = session.substring(session.lastIndexOf('/') + 1);
+        Map<String, String> parameters = objectMapper.convertValue(request.path("queryResult").path("parameters"), Map.class);
+        String queryText = request.path("queryResult").path("queryText").asText();
+        return registry.dispatch(new IntentRequest(intentName, sessionId, "E1", queryText, parameters));
+    }
+
+    @Benchmark
+    public WebhookRequest streamingRead() throws Exception {
+        return webhookRequestReader.read(payload);
+    }
+
+    @Benchmark
+    public String streamingEndToEnd() throws Exception {
+        WebhookRequest request = webhookRequestReader.read(payload);
+        return registry.dispatch(new IntentRequest(request.intentName(), request.sessionId(), "E1",
+                request.queryText(), request.parameters()));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.dialogflow.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// What Spring MVC does with every /api/chat reply
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChatResponseSerializationBenchmark {
+
+    private ObjectWriter writer;
+    private ChatResponse response;
+
+    @Setup
+    public void setUp() {
+        writer = new ObjectMapper().writerFor(ChatResponse.class);
+        response = new ChatResponse(true,
+                "Annual leave is 21 working days per year, accrued monthly. Unused days up to 5 carry over to the next year.",
+                "8f14e45f-ceea-467f-a8c2-1b0d43c9a2e1", "E1024", null);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return writer.writeValueAsBytes(response);
+    }
+}
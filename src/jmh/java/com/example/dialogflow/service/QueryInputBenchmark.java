@@ -0,0 +1,42 @@
+package com.example.dialogflow.service;
+
+import com.example.dialogflow.service.resilience.DependencyGuards;
+import com.google.cloud.dialogflow.v2.QueryInput;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+// Protobuf construction of the detectIntent query; no client is created (init() is never called)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryInputBenchmark {
+
+    private DialogflowService dialogflowService;
+
+    @Setup
+    public void setUp() {
+        dialogflowService = new DialogflowService("unused.json", "hr-bot", "en-US",
+                10_000, new SimpleMeterRegistry(),
+                new DependencyGuards(new StandardEnvironment()), 2, 60, 10, 4 * 1024 * 1024, 4, true);
+    }
+
+    @Benchmark
+    public QueryInput buildQueryInput() {
+        return dialogflowService.buildQueryInput("how many days of annual leave do I have left");
+    }
+}
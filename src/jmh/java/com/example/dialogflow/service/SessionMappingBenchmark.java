@@ -0,0 +1,68 @@
+package com.example.dialogflow.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Read-mostly contention on the session map: webhook lookups racing chat requests that save mappings.
+// Runs with the real clock and wheel, but without the background sweeper thread.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class SessionMappingBenchmark {
+
+    @Param({"10000", "100000"})
+    int sessions;
+
+    private SessionIdEmployeeIdMappingService mappingService;
+    private String[] sessionIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mappingService = new SessionIdEmployeeIdMappingService(TimeUnit.MINUTES.toMillis(60), sessions, 60,
+                System::currentTimeMillis, false);
+        sessionIds = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            sessionIds[i] = "session-" + i;
+            mappingService.saveMapping(sessionIds[i], "E" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mappingService.shutdown();
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(6)
+    public String get() {
+        return mappingService.getEmployeeId(sessionIds[ThreadLocalRandom.current().nextInt(sessions)]);
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(2)
+    public void put() {
+        int i = ThreadLocalRandom.current().nextInt(sessions);
+        mappingService.saveMapping(sessionIds[i], "E" + i);
+    }
+}
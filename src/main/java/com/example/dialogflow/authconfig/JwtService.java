@@ -0,0 +1,298 @@
+package com.example.dialogflow.authconfig;
+
+import com.example.dialogflow.model.PrincipalUser;
+import com.example.dialogflow.model.Role;
+import com.example.dialogflow.model.Users;
+import com.example.dialogflow.model.repository.TokenRevocationRepository;
+import com.example.dialogflow.utils.constants.Constants;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Issues and verifies the HS256 access tokens used by JwtAuthenticationFilter. Everything the filter
+// needs to build a PrincipalUser (id, username, email, role) travels in the claims, so an authenticated
+// request never reads UserRepository.
+//
+// Verified tokens are kept in a bounded LRU (jwt.cache.max-entries) until they expire, so a token seen
+// recently skips the HMAC and JSON parsing and costs one lock-free map lookup. Revocation is checked on
+// every request, cached or not: a single token by its jti, or all of a user's tokens issued before a
+// point in time ("log out everywhere").
+//
+// Revocations are written to TokenRevocationRepository and take effect at once on the node that
+// received them. Every node reloads the live revocations every jwt.revocation.refresh-ms, so the other
+// nodes enforce them within that interval.
+@Slf4j
+@Service
+public class JwtService {
+
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_EMAIL = "email";
+    static final String CLAIM_ROLE = "role";
+
+    private final SecretKey key;
+    private final JwtParser parser;
+    private final long validityMillis;
+    private final int maxCacheEntries;
+    private final LongSupplier clock;
+
+    private final RevocationStore store;
+    private final ScheduledExecutorService refresher;
+
+    private final ConcurrentHashMap<String, VerifiedToken> verified = new ConcurrentHashMap<>();
+    // Access order of the cached tokens, for eviction; only used under lock
+    private final LinkedHashMap<String, Boolean> recency = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    // jti -> token expiry, so entries can be dropped once the token would be rejected anyway
+    private final ConcurrentHashMap<String, Long> revokedTokenIds = new ConcurrentHashMap<>();
+    // username -> tokens issued before this instant are rejected
+    private final ConcurrentHashMap<String, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+
+    @Autowired
+    public JwtService(
+            TokenRevocationRepository repository,
+            @Value("${jwt.cache.max-entries:10000}") int maxCacheEntries,
+            @Value("${jwt.revocation.refresh-ms:5000}") long refreshMillis
+    ) {
+        this(Constants.JWT_SECRET, TimeUnit.SECONDS.toMillis(Constants.JWT_TOKEN_VALIDITY), maxCacheEntries,
+                System::currentTimeMillis, new RevocationStore() {
+                    @Override
+                    public void save(TokenRevocation revocation) {
+                        repository.insert(revocation);
+                    }
+
+                    @Override
+                    public List<TokenRevocation> loadActive(long now) {
+                        repository.deleteExpired(now);
+                        return repository.findActive(now);
+                    }
+                }, Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "jwt-revocation-refresh");
+                    t.setDaemon(true);
+                    return t;
+                }));
+        refresher.scheduleWithFixedDelay(this::refreshRevocations, 0, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    JwtService(String secret, long validityMillis, int maxCacheEntries, LongSupplier clock, RevocationStore store,
+               ScheduledExecutorService refresher) {
+        this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(key)
+                .clock(() -> new Date(clock.getAsLong()))
+                .build();
+        this.validityMillis = validityMillis;
+        this.maxCacheEntries = maxCacheEntries;
+        this.clock = clock;
+        this.store = store;
+        this.refresher = refresher;
+    }
+
+    public String generateToken(Users user) {
+        long now = clock.getAsLong();
+        return Jwts.builder()
+                .id(UUID.randomUUID().toString())
+                .subject(user.getUsername())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_EMAIL, user.getEmail())
+                .claim(CLAIM_ROLE, user.getRole().name())
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + validityMillis))
+                .signWith(key)
+                .compact();
+    }
+
+    // Returns the principal for a valid, unexpired, unrevoked token, or null
+    public PrincipalUser authenticate(String token) {
+        long now = clock.getAsLong();
+        VerifiedToken cached = verified.get(token);
+
+        if (cached != null) {
+            hits.increment();
+            touch(token);
+        } else {
+            misses.increment();
+            cached = verify(token);
+            if (cached == null) {
+                rejected.increment();
+                return null;
+            }
+            cache(token, cached);
+        }
+
+        if (now >= cached.expiresAt || isRevoked(cached)) {
+            rejected.increment();
+            return null;
+        }
+        return cached.principal;
+    }
+
+    // Revokes one token; returns false if it was not a valid token to begin with. Throws if the
+    // revocation could not be stored, in which case no node enforces it.
+    public boolean revokeToken(String token) {
+        VerifiedToken verifiedToken = verify(token);
+        if (verifiedToken == null) {
+            return false;
+        }
+        revoke(new TokenRevocation(verifiedToken.tokenId, null, clock.getAsLong(), verifiedToken.expiresAt));
+        return true;
+    }
+
+    // Revokes every token issued to the user until now. "iat" has one-second resolution, so a token
+    // issued in the same second as the revocation is revoked too.
+    public void revokeAllFor(String username) {
+        long now = clock.getAsLong();
+        revoke(new TokenRevocation(null, username, now, now + validityMillis));
+    }
+
+    // Picks up revocations made on other nodes. Revocations are never lifted before they expire, so
+    // loaded rows are merged into what this node already holds.
+    void refreshRevocations() {
+        try {
+            store.loadActive(clock.getAsLong()).forEach(this::apply);
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            log.warn("Could not refresh token revocations: {}", e.getMessage());
+        }
+        pruneRevocations();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    public TokenStats getStats() {
+        return new TokenStats(verified.size(), hits.sum(), misses.sum(), rejected.sum(), revokedTokenIds.size(),
+                revokedBefore.size(), refreshFailures.sum());
+    }
+
+    private void revoke(TokenRevocation revocation) {
+        store.save(revocation);
+        apply(revocation);
+        pruneRevocations();
+    }
+
+    private void apply(TokenRevocation revocation) {
+        if (revocation.tokenId() != null) {
+            revokedTokenIds.merge(revocation.tokenId(), revocation.expiresAt(), Math::max);
+        }
+        if (revocation.username() != null) {
+            revokedBefore.merge(revocation.username(), revocation.revokedAt(), Math::max);
+        }
+    }
+
+    private VerifiedToken verify(String token) {
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null; // bad signature, expired or malformed
+        }
+        Integer userId = claims.get(CLAIM_USER_ID, Integer.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        if (userId == null || role == null || claims.getSubject() == null
+                || claims.getIssuedAt() == null || claims.getExpiration() == null) {
+            return null;
+        }
+        Role parsedRole;
+        try {
+            parsedRole = Role.valueOf(role);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        Users user = Users.builder()
+                .id(userId)
+                .username(claims.getSubject())
+                .email(claims.get(CLAIM_EMAIL, String.class))
+                .role(parsedRole)
+                .passwordHash("")
+                .build();
+        return new VerifiedToken(new PrincipalUser(user), claims.getId(), claims.getSubject(),
+                claims.getIssuedAt().getTime(), claims.getExpiration().getTime());
+    }
+
+    private void cache(String token, VerifiedToken verifiedToken) {
+        lock.lock();
+        try {
+            verified.put(token, verifiedToken);
+            recency.put(token, Boolean.TRUE);
+            Iterator<String> eldest = recency.keySet().iterator();
+            while (recency.size() > maxCacheEntries && eldest.hasNext()) {
+                verified.remove(eldest.next());
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Moves a cache hit to the young end. A hit that finds the lock taken skips this rather than wait,
+    // so eviction is approximately LRU under contention.
+    private void touch(String token) {
+        if (lock.tryLock()) {
+            try {
+                recency.get(token);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private boolean isRevoked(VerifiedToken token) {
+        if (token.tokenId != null && revokedTokenIds.containsKey(token.tokenId)) {
+            return true;
+        }
+        Long before = revokedBefore.get(token.username);
+        return before != null && token.issuedAt <= before;
+    }
+
+    // Revoked jtis only matter until their token expires; a user cut-off until every token issued before it has
+    private void pruneRevocations() {
+        long now = clock.getAsLong();
+        revokedTokenIds.values().removeIf(expiresAt -> expiresAt <= now);
+        revokedBefore.values().removeIf(before -> before + validityMillis <= now);
+    }
+
+    private record VerifiedToken(PrincipalUser principal, String tokenId, String username, long issuedAt,
+                                 long expiresAt) {
+    }
+
+    public record TokenStats(int cachedTokens, long cacheHits, long cacheMisses, long rejected, int revokedTokens,
+                             int revokedUsers, long revocationRefreshFailures) {
+    }
+
+    // Where revocations are shared between nodes
+    interface RevocationStore {
+        void save(TokenRevocation revocation);
+
+        // Revocations that have not expired yet; may also drop the expired ones
+        List<TokenRevocation> loadActive(long now);
+    }
+}
@@ -1,16 +1,24 @@
 package com.example.dialogflow.authconfig;
 
+import com.example.dialogflow.utils.constants.Constants;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod; // Import this!
 import org.springframework.security.config.Customizer; // Import this!
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+
 import java.util.Arrays; // Import for Arrays.asList
 
 @Configuration
@@ -45,10 +53,32 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public PasswordEncoder passwordEncoder() {
+        return new BCryptPasswordEncoder();
+    }
+
+    @Bean
+    public SecurityFilterChain securityFilterChain(
+            HttpSecurity http,
+            JwtService jwtService,
+            @Value("${server.port:8080}") int serverPort,
+            @Value("${management.server.port:-1}") int managementPort
+    ) throws Exception {
+        // The Prometheus scrape is open only when it arrives on a separate management port, which is
+        // meant to be reachable from the internal network only (management.server.address, firewall).
+        // Anywhere else it needs an admin token like the rest of the operational endpoints.
+        boolean separateManagementPort = managementPort > 0 && managementPort != serverPort;
+        RequestMatcher internalScrape = request -> separateManagementPort && request.getLocalPort() == managementPort
+                && "/actuator/prometheus".equals(request.getRequestURI());
         http
                 .csrf(AbstractHttpConfigurer::disable) // Typically disabled for stateless APIs if not using CSRF tokens
                 .cors(Customizer.withDefaults()) // Enable CORS using the Bean defined above
+                // Stateless: every request authenticates with its own bearer token, no HTTP session
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .addFilterBefore(new JwtAuthenticationFilter(jwtService), UsernamePasswordAuthenticationFilter.class)
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint((request, response, e) ->
+                                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, Constants.INVALID_MISSING_TOKEN)))
 
                 .authorizeHttpRequests(authorize -> authorize
                         // CRITICAL: Allow OPTIONS requests to pass through without authentication checks.
@@ -57,6 +87,9 @@ public class SecurityConfig {
                         .requestMatchers("/api/chat/**").permitAll()
                         .requestMatchers("/api/webhook/**").permitAll() // Ensure webhook endpoint is also permitted
                         .requestMatchers("/api/trigger/**").permitAll() // Ensure trigger endpoint is also permitted
+                        .requestMatchers("/actuator/health/**").permitAll() // Liveness and readiness probes
+                        .requestMatchers(internalScrape).permitAll()
+                        .requestMatchers("/api/admin/**", "/api/users/**", "/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 // You might want to disable formLogin or httpBasic if you're using token-based auth
@@ -65,16 +98,4 @@ public class SecurityConfig {
 
         return http.build();
     }
-    // In SecurityConfig.java or a new AppConfig.java
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
-        // You can add configurations here, e.g.:
-        // return new RestTemplate(new HttpComponentsClientHttpRequestFactory(HttpClientBuilder.create().build()));
-        // or configure timeouts:
-        // SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        // factory.setConnectTimeout(5000); // 5 seconds
-        // factory.setReadTimeout(10000); // 10 seconds
-        // return new RestTemplate(factory);
-    }
 }
\ No newline at end of file
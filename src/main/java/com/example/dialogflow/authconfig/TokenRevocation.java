@@ -0,0 +1,7 @@
+package com.example.dialogflow.authconfig;
+
+// One revocation as shared between nodes. Either tokenId is set (a single token, by its jti) or
+// username is (every token issued to the user up to revokedAt). expiresAt is when the revocation stops
+// mattering: the token's own expiry, or revokedAt plus the token validity for a user cut-off.
+public record TokenRevocation(String tokenId, String username, long revokedAt, long expiresAt) {
+}
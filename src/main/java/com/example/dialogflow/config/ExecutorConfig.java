@@ -0,0 +1,66 @@
+package com.example.dialogflow.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Executor for blocking outbound work (hedged Yii2 attempts, batched lookups, warm-ups, background
+// jobs). It is never used as an I/O callback executor: the gRPC channel and the JDK HttpClient deliver
+// completions on their own threads, so a pool full of blocked tasks cannot stop the completions those
+// tasks wait for. It follows the same switch Spring Boot uses for Tomcat: with
+// spring.threads.virtual.enabled=true both request handling and outbound calls run on virtual threads,
+// otherwise on a bounded platform pool.
+@Slf4j
+@Configuration
+public class ExecutorConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService outboundExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${outbound.executor.threads:32}") int platformThreads
+    ) {
+        if (virtualThreads) {
+            log.info("Outbound calls will run on virtual threads");
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("outbound-", 0).factory());
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(platformThreads, platformThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads("outbound-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // LLM answers streamed over SSE. A stream blocks its thread for as long as the provider keeps
+    // writing, so streams get their own threads, capped at chat.stream.max-concurrent (ChatController
+    // turns callers beyond the cap away), instead of occupying outboundExecutor.
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService streamExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${chat.stream.max-concurrent:64}") int maxStreams
+    ) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sse-stream-", 0).factory());
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxStreams, maxStreams, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads("sse-stream-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.dialogflow.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+// Outbound HTTP clients. Every call leaving the service has a connect timeout, a response timeout and,
+// for pooled clients, a bounded wait for a connection, so a hung upstream fails fast instead of
+// holding request threads.
+@Slf4j
+@Configuration
+public class HttpClientConfig {
+
+    // Yii2 is plain HTTP/1.1, so it gets a classic keep-alive connection pool with per-host limits
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpConnectionManager(
+            @Value("${http.client.max-connections:200}") int maxConnections,
+            @Value("${http.client.max-connections-per-host:50}") int maxConnectionsPerHost,
+            @Value("${http.client.yii2.max-connections:${http.client.max-connections-per-host:50}}") int yii2MaxConnections,
+            @Value("${http.client.connect-timeout-ms:2000}") long connectTimeoutMs,
+            @Value("${http.client.read-timeout-ms:10000}") long readTimeoutMs,
+            @Value("${http.client.connection-ttl-seconds:300}") long connectionTtlSeconds,
+            @Value("${yii2.api.base-url}") String yii2ApiBaseUrl
+    ) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerHost)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setTimeToLive(TimeValue.ofSeconds(connectionTtlSeconds))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        try {
+            HttpHost yii2Host = HttpHost.create(new URI(yii2ApiBaseUrl));
+            connectionManager.setMaxPerRoute(new HttpRoute(yii2Host), yii2MaxConnections);
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            log.warn("Could not derive Yii2 host from {}, using the default per-host pool size", yii2ApiBaseUrl);
+        }
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient pooledHttpClient(
+            PoolingHttpClientConnectionManager httpConnectionManager,
+            @Value("${http.client.pool-acquire-timeout-ms:1000}") long poolAcquireTimeoutMs,
+            @Value("${http.client.read-timeout-ms:10000}") long readTimeoutMs,
+            @Value("${http.client.keep-alive-seconds:30}") long keepAliveSeconds
+    ) {
+        TimeValue keepAlive = TimeValue.ofSeconds(keepAliveSeconds);
+        return HttpClients.custom()
+                .setConnectionManager(httpConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolAcquireTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> keepAlive)
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive)
+                .build();
+    }
+
+    @Bean
+    @Primary
+    public RestTemplate restTemplate(CloseableHttpClient pooledHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(pooledHttpClient));
+    }
+
+    // OpenAI and DeepSeek speak HTTP/2, where one multiplexed connection per host replaces a pool.
+    // The JDK client negotiates h2 via ALPN and falls back to HTTP/1.1 otherwise. Both LLM beans are
+    // lazy (and injected lazily) so startup does not build them; LlmWarmup or the first call does.
+    // The client keeps its default executor for response delivery; readers such as SSE streams block
+    // on streamExecutor threads and must not also be what their own bytes are waiting on.
+    @Bean
+    @Lazy
+    public HttpClient llmHttpClient(@Value("${http.client.connect-timeout-ms:2000}") long connectTimeoutMs) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+    }
+
+    // For blocking completions only. JdkClientHttpRequestFactory's "read timeout" caps the whole
+    // exchange, body included, so streamed answers go through LlmStreamClient instead.
+    @Bean
+    @Lazy
+    public RestTemplate llmRestTemplate(
+            @Qualifier("llmHttpClient") HttpClient llmHttpClient,
+            @Value("${http.client.llm.read-timeout-ms:60000}") long exchangeTimeoutMs
+    ) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(llmHttpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(exchangeTimeoutMs));
+        return new RestTemplate(requestFactory);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.dialogflow.config;
+
+import com.example.dialogflow.service.CompletionCache;
+import com.example.dialogflow.service.SessionIdEmployeeIdMappingService;
+import com.example.dialogflow.service.faq.FaqService;
+import com.example.dialogflow.service.resilience.DependencyGuards;
+import com.example.dialogflow.service.transcript.TranscriptWriter;
+import com.example.dialogflow.service.yii2.Yii2Client;
+import com.example.dialogflow.service.yii2.Yii2Prefetcher;
+import com.example.dialogflow.service.yii2.Yii2ResponseCache;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+import java.util.function.ToDoubleFunction;
+
+// Timers for the hot-path stages live next to the calls they time (dialogflow.detect_intent,
+// yii2.request, llm.request, webhook.request). This class turns the stats the in-memory caches and
+// maps already keep into gauges and counters, and loads the actuator/Prometheus defaults from
+// metrics.properties (application properties still override them).
+@Configuration
+@PropertySource("classpath:metrics.properties")
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder sessionMappingMetrics(SessionIdEmployeeIdMappingService mappingService) {
+        return registry -> {
+            Gauge.builder("session.mapping.size", mappingService, SessionIdEmployeeIdMappingService::size)
+                    .description("sessionId to employeeId mappings held")
+                    .register(registry);
+            counter(registry, "session.mapping.lookups", mappingService, s -> s.getStats().hits(), "result", "hit");
+            counter(registry, "session.mapping.lookups", mappingService, s -> s.getStats().misses(), "result", "miss");
+            counter(registry, "session.mapping.removals", mappingService, s -> s.getStats().expirations(), "cause", "expired");
+            counter(registry, "session.mapping.removals", mappingService, s -> s.getStats().evictions(), "cause", "evicted");
+        };
+    }
+
+    @Bean
+    public MeterBinder yii2Metrics(Yii2ResponseCache responseCache, Yii2Client yii2Client, Yii2Prefetcher prefetcher) {
+        return registry -> {
+            Gauge.builder("yii2.cache.size", responseCache, c -> c.getStats().size()).register(registry);
+            counter(registry, "yii2.cache.requests", responseCache, c -> c.getStats().hits(), "result", "hit");
+            counter(registry, "yii2.cache.requests", responseCache, c -> c.getStats().staleHits(), "result", "stale");
+            counter(registry, "yii2.cache.requests", responseCache, c -> c.getStats().misses(), "result", "miss");
+            counter(registry, "yii2.cache.refresh.failures", responseCache, c -> c.getStats().refreshFailures());
+            counter(registry, "yii2.cache.evictions", responseCache, c -> c.getStats().evictions());
+            counter(registry, "yii2.coalesced", yii2Client, c -> c.getCoalescingStats().collapsed());
+            counter(registry, "yii2.retries", yii2Client, c -> c.getPolicyStats().retries());
+            counter(registry, "yii2.retry_budget.exhausted", yii2Client, c -> c.getPolicyStats().budgetExhausted());
+            counter(registry, "yii2.hedges", yii2Client, c -> c.getPolicyStats().hedges(), "result", "sent");
+            counter(registry, "yii2.hedges", yii2Client, c -> c.getPolicyStats().hedgeWins(), "result", "won");
+            counter(registry, "yii2.deadline_exceeded", yii2Client, c -> c.getPolicyStats().deadlineExceeded());
+            counter(registry, "yii2.batch.fallbacks", yii2Client, c -> c.getBatchStats().fallbacks());
+            counter(registry, "yii2.prefetch", prefetcher, p -> p.getStats().scheduled(), "result", "scheduled");
+            counter(registry, "yii2.prefetch", prefetcher, p -> p.getStats().deduplicated(), "result", "deduplicated");
+            counter(registry, "yii2.prefetch", prefetcher, p -> p.getStats().dropped(), "result", "dropped");
+            counter(registry, "yii2.prefetch.calls", prefetcher, p -> p.getStats().fetched(), "outcome", "success");
+            counter(registry, "yii2.prefetch.calls", prefetcher, p -> p.getStats().failures(), "outcome", "error");
+        };
+    }
+
+    @Bean
+    public MeterBinder completionCacheMetrics(CompletionCache completionCache) {
+        return registry -> {
+            Gauge.builder("llm.completion_cache.size", completionCache, c -> c.getStats().size()).register(registry);
+            Gauge.builder("llm.completion_cache.bytes", completionCache, c -> c.getStats().bytes())
+                    .baseUnit("bytes")
+                    .register(registry);
+            counter(registry, "llm.completion_cache.requests", completionCache, c -> c.getStats().hits(), "result", "hit");
+            counter(registry, "llm.completion_cache.requests", completionCache, c -> c.getStats().misses(), "result", "miss");
+            counter(registry, "llm.completion_cache.evictions", completionCache, c -> c.getStats().evictions());
+        };
+    }
+
+    @Bean
+    public MeterBinder faqMetrics(FaqService faqService) {
+        return registry -> {
+            Gauge.builder("faq.phrasings", faqService, f -> f.getStats().phrasings()).register(registry);
+            counter(registry, "faq.requests", faqService, f -> f.getStats().hits(), "result", "hit");
+            counter(registry, "faq.requests", faqService, f -> f.getStats().misses(), "result", "miss");
+        };
+    }
+
+    // resilience4j_circuitbreaker_state{name="yii2",state="open"} etc., one name per Dependency
+    @Bean
+    public MeterBinder dependencyGuardMetrics(DependencyGuards dependencyGuards) {
+        return registry -> {
+            TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(dependencyGuards.getCircuitBreakerRegistry()).bindTo(registry);
+            TaggedBulkheadMetrics.ofBulkheadRegistry(dependencyGuards.getBulkheadRegistry()).bindTo(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder httpPoolMetrics(PoolingHttpClientConnectionManager httpConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(httpConnectionManager, "pooled");
+    }
+
+    @Bean
+    public MeterBinder transcriptMetrics(TranscriptWriter transcriptWriter) {
+        return registry -> {
+            Gauge.builder("transcripts.queue.size", transcriptWriter, w -> w.getStats().queued())
+                    .description("Chat turns waiting to be written")
+                    .register(registry);
+            counter(registry, "transcripts.turns", transcriptWriter, w -> w.getStats().accepted(), "result", "accepted");
+            counter(registry, "transcripts.turns", transcriptWriter, w -> w.getStats().shed(), "result", "shed");
+            counter(registry, "transcripts.turns", transcriptWriter, w -> w.getStats().written(), "result", "written");
+            counter(registry, "transcripts.turns", transcriptWriter, w -> w.getStats().failed(), "result", "failed");
+            counter(registry, "transcripts.backpressure", transcriptWriter, w -> w.getStats().backpressured());
+            counter(registry, "transcripts.batches", transcriptWriter, w -> w.getStats().batches());
+        };
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, T source, ToDoubleFunction<T> count, String... tags) {
+        FunctionCounter.builder(name, source, count).tags(tags).register(registry);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.dialogflow.controller;
+
+import com.example.dialogflow.authconfig.JwtService;
+import com.example.dialogflow.service.CompletionCache;
+import com.example.dialogflow.service.faq.FaqService;
+import com.example.dialogflow.service.resilience.DependencyGuards;
+import com.example.dialogflow.service.trace.TraceBuffer;
+import com.example.dialogflow.service.transcript.TranscriptWriter;
+import com.example.dialogflow.service.yii2.Yii2Client;
+import com.example.dialogflow.service.yii2.Yii2Prefetcher;
+import com.example.dialogflow.service.intent.IntentHandlerRegistry;
+import com.example.dialogflow.utils.ResponseUtil;
+import com.example.dialogflow.utils.constants.Constants;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Operational views for support staff; ROLE_ADMIN only (see SecurityConfig)
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final PoolingHttpClientConnectionManager httpConnectionManager;
+    private final IntentHandlerRegistry intentHandlerRegistry;
+    private final CompletionCache completionCache;
+    private final FaqService faqService;
+    private final TraceBuffer traceBuffer;
+    private final DependencyGuards dependencyGuards;
+    private final Yii2Client yii2Client;
+    private final Yii2Prefetcher yii2Prefetcher;
+    private final JwtService jwtService;
+    private final TranscriptWriter transcriptWriter;
+
+    public AdminController(
+            PoolingHttpClientConnectionManager httpConnectionManager,
+            IntentHandlerRegistry intentHandlerRegistry,
+            CompletionCache completionCache,
+            FaqService faqService,
+            TraceBuffer traceBuffer,
+            DependencyGuards dependencyGuards,
+            Yii2Client yii2Client,
+            Yii2Prefetcher yii2Prefetcher,
+            JwtService jwtService,
+            TranscriptWriter transcriptWriter
+    ) {
+        this.httpConnectionManager = httpConnectionManager;
+        this.intentHandlerRegistry = intentHandlerRegistry;
+        this.completionCache = completionCache;
+        this.faqService = faqService;
+        this.traceBuffer = traceBuffer;
+        this.dependencyGuards = dependencyGuards;
+        this.yii2Client = yii2Client;
+        this.yii2Prefetcher = yii2Prefetcher;
+        this.jwtService = jwtService;
+        this.transcriptWriter = transcriptWriter;
+    }
+
+    @GetMapping("/http-pools")
+    public ResponseEntity<Object> httpPools() {
+        Map<String, Object> pools = new LinkedHashMap<>();
+        pools.put("total", poolGauges(httpConnectionManager.getTotalStats()));
+        Map<String, Object> hosts = new LinkedHashMap<>();
+        for (HttpRoute route : httpConnectionManager.getRoutes()) {
+            hosts.put(route.getTargetHost().toURI(), poolGauges(httpConnectionManager.getStats(route)));
+        }
+        pools.put("hosts", hosts);
+        return ResponseUtil.buildResponse(HttpStatus.OK, Constants.SUCCESS, pools);
+    }
+
+    // Per-intent webhook timings, slowest first
+    @GetMapping("/intents")
+    public ResponseEntity<Object> intents() {
+        return ResponseUtil.buildResponse(HttpStatus.OK, Constants.SUCCESS, intentHandlerRegistry.getStats());
+    }
+
+    @GetMapping("/completion-cache")
+    public ResponseEntity<Object> completionCache() {
+        return ResponseUtil.buildResponse(HttpStatus.OK, Constants.SUCCESS, completionCache.getStats());
+    }
+
+    @GetMapping("/faq")
+    public ResponseEntity<Object> faq() {
+        return ResponseUtil.buildResponse(HttpStatus.OK, Constants.SUCCESS, faqService.getStats());
+    }
+
+    // Re-reads faq.path; on a bad file the previous FAQ set stays in place
+    @PostMapping("/faq/reload")
+    public ResponseEntity<Object> reloadFaq() {
+        try {
+            faqService.reload();
+            return ResponseUtil.buildResponse(HttpStatus.OK, Constants.SUCCESS, faqService.getStats());
+        } catch (IOException | RuntimeException e) {
+            return ResponseUtil.buildResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Circuit state, failure/slow-call rates and free bulkhead permits per downstream dependency
+    @GetMapping("/dependencies")
+    public ResponseEntity<Object> dependencies() {
+        return ResponseUtil.buildResponse(HttpStatus.OK, Constants.SUCCESS, dependencyGuards.getStats());
+    }
+
+    // Retry budget, hedging and per-endpoint p95 for Yii2 reads, plus request coalescing, batching and prefetching
+    @GetMapping("/yii2")
+    public ResponseEntity<Object> yii2() {
+        Map<String, Object> yii2 = new LinkedHashMap<>();
+        yii2.put("policy", yii2Client.getPolicyStats());
+        yii2.put("coalescing", yii2Client.getCoalescingStats());
+        yii2.put("batching", yii2Client.getBatchStats());
+        yii2.put("prefetch", yii2Prefetcher.getStats());
+        return ResponseUtil.buildResponse(HttpStatus.OK, Constants.SUCCESS, yii2);
+    }
+
+    // Recent /api/chat and /api/webhook traces, newest first, e.g. ?minLatencyMs=2000 for the slow ones
+    @GetMapping("/traces")
+    public ResponseEntity<Object> traces(
+            @RequestParam(required = false) String sessionId,
+            @RequestParam(required = false) String intent,
+            @RequestParam(required = false) Long minLatencyMs,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        Map<String, Object> traces = new LinkedHashMap<>();
+        traces.put("capacity", traceBuffer.capacity());
+        traces.put("recorded", traceBuffer.recorded());
+        traces.put("traces", traceBuffer.query(sessionId, intent, minLatencyMs, Math.min(limit, traceBuffer.capacity())));
+        return ResponseUtil.buildResponse(HttpStatus.OK, Constants.SUCCESS, traces);
+    }
+
+    // Verified-token cache hit rate and revocation counts
+    @GetMapping("/tokens")
+    public ResponseEntity<Object> tokens() {
+        return ResponseUtil.buildResponse(HttpStatus.OK, Constants.SUCCESS, jwtService.getStats());
+    }
+
+    // Body: {"token": "<jwt>"}; the token is rejected from the next request on
+    @PostMapping("/tokens/revoke")
+    public ResponseEntity<Object> revokeToken(@RequestBody Map<String, String> body) {
+        String token = body.get("token");
+        if (token == null || !jwtService.revokeToken(token)) {
+            return ResponseUtil.buildResponse(HttpStatus.BAD_REQUEST, Constants.INVALID_MISSING_TOKEN);
+        }
+        return ResponseUtil.buildResponse(HttpStatus.OK, Constants.SUCCESS, jwtService.getStats());
+    }
+
+    // Revokes every token issued to the user so far, e.g. after a password change or a lost device
+    @PostMapping("/users/{username}/revoke-tokens")
+    public ResponseEntity<Object> revokeUserTokens(@PathVariable String username) {
+        jwtService.revokeAllFor(username);
+        return ResponseUtil.buildResponse(HttpStatus.OK, Constants.SUCCESS, jwtService.getStats());
+    }
+
+    // Write-behind transcript queue depth and how many turns were written, shed or failed
+    @GetMapping("/transcripts")
+    public ResponseEntity<Object> transcripts() {
+        return ResponseUtil.buildResponse(HttpStatus.OK, Constants.SUCCESS, transcriptWriter.getStats());
+    }
+
+    private static Map<String, Integer> poolGauges(PoolStats stats) {
+        Map<String, Integer> gauges = new LinkedHashMap<>();
+        gauges.put("leased", stats.getLeased());
+        gauges.put("pending", stats.getPending());
+        gauges.put("available", stats.getAvailable());
+        gauges.put("max", stats.getMax());
+        return gauges;
+    }
+}
@@ -3,27 +3,55 @@ package com.example.dialogflow.controller;
 // ... (existing imports)
 import com.example.dialogflow.dto.ChatRequest;
 import com.example.dialogflow.dto.ChatResponse;
+import com.example.dialogflow.dto.DialogflowReply;
+import com.example.dialogflow.dto.WebhookRequest;
+import com.example.dialogflow.service.ChatBatchService;
 import com.example.dialogflow.service.DeepseekService;
 import com.example.dialogflow.service.DialogflowService;
 import com.example.dialogflow.service.OpenAiService;
 import com.example.dialogflow.service.SessionIdEmployeeIdMappingService; // New service
+import com.example.dialogflow.service.WebhookRequestReader;
+import com.example.dialogflow.service.faq.FaqService;
+import com.example.dialogflow.service.intent.IntentHandlerRegistry;
+import com.example.dialogflow.service.intent.IntentRequest;
+import com.example.dialogflow.service.resilience.ClientDisconnectedException;
+import com.example.dialogflow.service.resilience.DependencyUnavailableException;
+import com.example.dialogflow.service.trace.RequestTrace;
+import com.example.dialogflow.service.trace.TraceBuffer;
+import com.example.dialogflow.service.transcript.TranscriptTurn;
+import com.example.dialogflow.service.transcript.TranscriptWriter;
+import com.example.dialogflow.utils.Deadline;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.api.gax.rpc.ApiException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.net.URI;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -35,28 +63,63 @@ public class ChatController {
     private final OpenAiService openAiService;
     private final DeepseekService deepseekService;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final RestTemplate restTemplate; // Injected RestTemplate
+    private final IntentHandlerRegistry intentHandlerRegistry; // Webhook intent dispatch
     private final SessionIdEmployeeIdMappingService mappingService; // Inject mapping service
+    private final ExecutorService streamExecutor;
+    private final Semaphore streamPermits;
+    private final ChatBatchService chatBatchService;
+    private final FaqService faqService;
+    private final MeterRegistry meterRegistry;
+    private final WebhookRequestReader webhookRequestReader;
+    private final TraceBuffer traceBuffer;
+    private final TranscriptWriter transcriptWriter;
 
-    @Value("${yii2.api.base-url}")
-    private String yii2ApiBaseUrl;
+    @Value("${chat.timeout-ms:15000}")
+    private long chatTimeoutMs;
+
+    @Value("${chat.stream.timeout-ms:120000}")
+    private long streamTimeoutMs;
+
+    // Dialogflow gives up on a webhook after 5 seconds; leave room to send the reply
+    @Value("${webhook.deadline-ms:4500}")
+    private long webhookDeadlineMs;
 
     public ChatController(
             DialogflowService dialogflowService,
             OpenAiService openAiService,
             DeepseekService deepseekService,
-            RestTemplate restTemplate, // RestTemplate is now correctly injected
-            SessionIdEmployeeIdMappingService mappingService // New service injected
+            IntentHandlerRegistry intentHandlerRegistry,
+            SessionIdEmployeeIdMappingService mappingService, // New service injected
+            @Qualifier("streamExecutor") ExecutorService streamExecutor,
+            @Value("${chat.stream.max-concurrent:64}") int maxConcurrentStreams,
+            ChatBatchService chatBatchService,
+            FaqService faqService,
+            MeterRegistry meterRegistry,
+            WebhookRequestReader webhookRequestReader,
+            TraceBuffer traceBuffer,
+            TranscriptWriter transcriptWriter
     ) {
         this.dialogflowService = dialogflowService;
         this.openAiService = openAiService;
         this.deepseekService = deepseekService;
-        this.restTemplate = restTemplate;
+        this.intentHandlerRegistry = intentHandlerRegistry;
         this.mappingService = mappingService; // Initialize
+        this.streamExecutor = streamExecutor;
+        this.streamPermits = new Semaphore(maxConcurrentStreams);
+        this.chatBatchService = chatBatchService;
+        this.faqService = faqService;
+        this.meterRegistry = meterRegistry;
+        this.webhookRequestReader = webhookRequestReader;
+        this.traceBuffer = traceBuffer;
+        this.transcriptWriter = transcriptWriter;
     }
 
+    // Async: the request thread is released while Dialogflow works. A request timeout or client
+    // disconnect cancels the in-flight gRPC call.
     @PostMapping("/chat")
-    public ResponseEntity<ChatResponse> chat(@RequestBody ChatRequest request) {
+    public DeferredResult<ResponseEntity<ChatResponse>> chat(@RequestBody ChatRequest request) {
+        DeferredResult<ResponseEntity<ChatResponse>> result = new DeferredResult<>(chatTimeoutMs);
+        long start = System.nanoTime();
         try {
             String sessionId = request.getSessionId() != null ?
                     request.getSessionId() : UUID.randomUUID().toString();
@@ -68,230 +131,290 @@ public class ChatController {
                 logger.info("Saved mapping: sessionId={} to employeeId={}", sessionId, request.getEmployeeId());
             }
 
-            logger.info("Processing chat request - Session: {}, Employee: {}, Message: {}", sessionId, employeeId, request.getMessage());
-
-            String responseText = dialogflowService.detectIntent(request.getMessage(), sessionId);
-
-            ChatResponse response = new ChatResponse(
-                    true,
-                    responseText,
-                    sessionId,
-                    employeeId,
-                    null
-            );
+            if (traceBuffer.sampleLog()) {
+                logger.info("Processing chat request - Session: {}, Employee: {}, Message: {}",
+                        sessionId, employeeId, traceBuffer.truncate(request.getMessage()));
+            }
+            RequestTrace trace = new RequestTrace("chat").sessionId(sessionId).message(request.getMessage());
+
+            // Canned FAQs are answered locally without the Dialogflow round trip
+            long faqStart = System.nanoTime();
+            String faqAnswer = faqService.answer(request.getMessage());
+            trace.stage("faq", System.nanoTime() - faqStart);
+            if (faqAnswer != null) {
+                traceBuffer.record(trace.intent("faq").outcome("faq"));
+                transcript("chat", sessionId, employeeId, "faq", request.getMessage(), faqAnswer, "faq", start);
+                result.setResult(ResponseEntity.ok(new ChatResponse(true, faqAnswer, sessionId, employeeId, null)));
+                return result;
+            }
 
-            return ResponseEntity.ok(response);
+            long dialogflowStart = System.nanoTime();
+            CompletableFuture<DialogflowReply> reply = dialogflowService.detectIntentAsync(request.getMessage(), sessionId);
+            // The timeout and the reply can fire at once on different threads; only the first one answers,
+            // finishes the trace and writes the transcript
+            AtomicBoolean answered = new AtomicBoolean();
+            result.onTimeout(() -> {
+                if (!answered.compareAndSet(false, true)) {
+                    return;
+                }
+                logger.warn("Timed out waiting for Dialogflow - Session: {}", sessionId);
+                result.setResult(chatError(request, HttpStatus.GATEWAY_TIMEOUT, "Timed out waiting for Dialogflow"));
+                reply.cancel(true);
+                traceBuffer.record(trace.stage("dialogflow", System.nanoTime() - dialogflowStart)
+                        .downstream("dialogflow", "TIMEOUT").outcome("timeout"));
+                transcript("chat", sessionId, employeeId, null, request.getMessage(), null, "timeout", start);
+            });
+            result.onError(e -> reply.cancel(true));
+
+            reply.whenComplete((dialogflowReply, e) -> {
+                if (result.isSetOrExpired() || !answered.compareAndSet(false, true)) {
+                    return;
+                }
+                trace.stage("dialogflow", System.nanoTime() - dialogflowStart);
+                if (e != null) {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    logger.error("Error processing chat request", cause);
+                    boolean shed = isDependencyUnavailable(cause);
+                    traceBuffer.record(trace.downstream("dialogflow", shed ? "REJECTED" : dialogflowStatus(cause))
+                            .outcome(shed ? "rejected" : "error"));
+                    transcript("chat", sessionId, employeeId, null, request.getMessage(), null,
+                            shed ? "rejected" : "error", start);
+                    result.setResult(chatError(request,
+                            shed ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.INTERNAL_SERVER_ERROR, cause.getMessage()));
+                    return;
+                }
+                traceBuffer.record(trace.intent(dialogflowReply.intent()).downstream("dialogflow", "OK").outcome("ok"));
+                transcript("chat", sessionId, employeeId, dialogflowReply.intent(), request.getMessage(),
+                        dialogflowReply.fulfillmentText(), "ok", start);
+                ChatResponse response = new ChatResponse(
+                        true,
+                        dialogflowReply.fulfillmentText(),
+                        sessionId,
+                        employeeId,
+                        null
+                );
+                result.setResult(ResponseEntity.ok(response));
+            });
 
         } catch (Exception e) {
             logger.error("Error processing chat request", e);
+            result.setResult(chatError(request, HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage()));
+        }
+        return result;
+    }
 
-            ChatResponse errorResponse = new ChatResponse(
-                    false,
-                    "Sorry, I encountered an error processing your request",
-                    request.getSessionId(),
-                    request.getEmployeeId(),
-                    e.getMessage()
-            );
+    // Queued for the write-behind transcript store; never blocks on the database
+    private void transcript(String channel, String sessionId, String employeeId, String intent, String message,
+                            String reply, String outcome, long startNanos) {
+        transcriptWriter.submit(new TranscriptTurn(Instant.now(), channel, sessionId, employeeId, intent, message,
+                reply, outcome, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+    }
 
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(errorResponse);
+    // Dialogflow's circuit is open or its bulkhead is full: the call was never made
+    private static boolean isDependencyUnavailable(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof DependencyUnavailableException) {
+                return true;
+            }
         }
+        return false;
     }
 
-    @PostMapping("/webhook")
-    public ResponseEntity<JsonNode> webhook(@RequestBody JsonNode dialogflowRequest) {
-        logger.info("Received Dialogflow webhook request: {}", dialogflowRequest.toString());
+    // gRPC status code when the failure came back from Dialogflow itself
+    private static String dialogflowStatus(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof ApiException apiException) {
+                return apiException.getStatusCode().getCode().name();
+            }
+        }
+        return failure instanceof CancellationException ? "CANCELLED" : "ERROR";
+    }
+
+    private ResponseEntity<ChatResponse> chatError(ChatRequest request, HttpStatus status, String error) {
+        ChatResponse errorResponse = new ChatResponse(
+                false,
+                "Sorry, I encountered an error processing your request",
+                request.getSessionId(),
+                request.getEmployeeId(),
+                error
+        );
+
+        return ResponseEntity.status(status)
+                .body(errorResponse);
+    }
+
+    // Many messages in one call. Responses come back in input order; a failed message gets an error
+    // response in its slot instead of failing the whole batch.
+    @PostMapping("/chat/batch")
+    public CompletableFuture<ResponseEntity<List<ChatResponse>>> chatBatch(@RequestBody List<ChatRequest> requests) {
+        if (requests.size() > chatBatchService.getMaxBatchSize()) {
+            ChatResponse tooLarge = new ChatResponse(false,
+                    "Too many messages in one batch. Please send at most " + chatBatchService.getMaxBatchSize() + ".",
+                    null, null, "Batch size " + requests.size() + " exceeds limit");
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(List.of(tooLarge)));
+        }
+        return chatBatchService.process(requests).thenApply(ResponseEntity::ok);
+    }
+
+    // Streams an LLM answer as server-sent events: "token" events as the provider produces them,
+    // then "done" (or "error" with a friendly message). provider is "deepseek" (default) or "openai".
+    // At most chat.stream.max-concurrent streams run at once; beyond that the caller gets a 503.
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> chatStream(@RequestBody ChatRequest request,
+                                                 @RequestParam(defaultValue = "deepseek") String provider) {
+        if (!streamPermits.tryAcquire()) {
+            logger.warn("Rejected chat stream: the concurrent stream limit is reached");
+            meterRegistry.counter("chat.stream.rejected").increment();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "2").build();
+        }
+        String sessionId = request.getSessionId() != null ?
+                request.getSessionId() : UUID.randomUUID().toString();
+        if (request.getEmployeeId() != null && !request.getEmployeeId().isEmpty()) {
+            mappingService.saveMapping(sessionId, request.getEmployeeId());
+        }
+        boolean openAi = "openai".equalsIgnoreCase(provider);
+        logger.info("Streaming {} answer - Session: {}, Employee: {}", openAi ? "OpenAI" : "DeepSeek", sessionId, request.getEmployeeId());
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        try {
+            streamExecutor.execute(() -> {
+                try {
+                    stream(emitter, request.getMessage(), sessionId, request.getEmployeeId(), openAi);
+                } finally {
+                    streamPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            streamPermits.release(); // shutting down
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    // The transcript turn holds whatever was streamed before the answer completed, failed or timed out
+    private void stream(SseEmitter emitter, String message, String sessionId, String employeeId, boolean openAi) {
+        long start = System.nanoTime();
+        AtomicBoolean timedOut = new AtomicBoolean();
+        emitter.onTimeout(() -> timedOut.set(true));
+        StringBuilder reply = new StringBuilder();
+        Consumer<String> sendToken = token -> {
+            try {
+                emitter.send(SseEmitter.event().name("token").data(token));
+                reply.append(token);
+            } catch (IOException | IllegalStateException e) {
+                // Client went away (or the emitter timed out); abort the upstream read instead of paying for the rest
+                throw new ClientDisconnectedException("SSE client disconnected", e);
+            }
+        };
+        String outcome = "error";
+        try {
+            if (openAi) {
+                openAiService.streamCompletion(message, sendToken);
+            } else {
+                deepseekService.streamCompletion(message, sendToken);
+            }
+            outcome = "ok";
+            emitter.send(SseEmitter.event().name("done").data(sessionId));
+            emitter.complete();
+        } catch (ClientDisconnectedException e) {
+            outcome = timedOut.get() ? "timeout" : "cancelled";
+            logger.debug("Client left the chat stream for session {}", sessionId);
+            emitter.complete();
+        } catch (Exception e) {
+            outcome = timedOut.get() ? "timeout" : "error";
+            logger.error("Error streaming chat answer for session {}", sessionId, e);
+            try {
+                emitter.send(SseEmitter.event().name("error")
+                        .data("Sorry, I had an issue talking to " + (openAi ? "OpenAI." : "DeepSeek.")));
+                emitter.complete();
+            } catch (IOException | IllegalStateException sendFailure) {
+                emitter.completeWithError(e);
+            }
+        } finally {
+            transcript("stream", sessionId, employeeId, null, message, reply.isEmpty() ? null : reply.toString(),
+                    outcome, start);
+        }
+    }
 
+    @PostMapping("/webhook")
+    public ResponseEntity<JsonNode> webhook(@RequestBody byte[] body) {
+        logger.debug("Received Dialogflow webhook request ({} bytes)", body.length);
+
+        Deadline deadline = Deadline.after(Duration.ofMillis(webhookDeadlineMs));
+        long start = System.nanoTime();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        RequestTrace trace = new RequestTrace("webhook");
+        String intentTag = "unknown";
+        String outcome = "error";
+        WebhookRequest dialogflowRequest = null;
+        String employeeId = null;
+        String reply = null;
         try {
-            String intentName = dialogflowRequest.path("queryResult").path("intent").path("displayName").asText();
-            String sessionId = dialogflowRequest.path("session").asText(); // Extract full session path
-            // Dialogflow session path format: projects/project-id/agent/sessions/session-id
-            String extractedSessionId = sessionId.substring(sessionId.lastIndexOf('/') + 1); // Get just the session ID part
+            long parseStart = System.nanoTime();
+            dialogflowRequest = webhookRequestReader.read(body);
+            trace.stage("parse", System.nanoTime() - parseStart);
+            String intentName = dialogflowRequest.intentName();
+            String extractedSessionId = dialogflowRequest.sessionId();
+            trace.sessionId(extractedSessionId).intent(intentName).message(dialogflowRequest.queryText());
 
             logger.info("Webhook triggered for Intent: {}, SessionId: {}", intentName, extractedSessionId);
+            // Only registered intents become tag values; the endpoint is public
+            intentTag = intentHandlerRegistry.getHandler(intentName) != null ? intentName : "unhandled";
 
             // Fetch employeeId using the extracted sessionId
-            String employeeId = mappingService.getEmployeeId(extractedSessionId);
+            employeeId = mappingService.getEmployeeId(extractedSessionId);
             if (employeeId == null) {
                 logger.warn("No employeeId found for session: {}. Cannot fetch personalized data.", extractedSessionId);
                 ObjectNode errorResponse = objectMapper.createObjectNode();
                 errorResponse.put("fulfillmentText", "I'm sorry, I can't retrieve personalized information without knowing your employee ID. Please ensure you are logged in to the HR portal.");
+                reply = errorResponse.get("fulfillmentText").asText();
+                outcome = "no_employee";
                 return ResponseEntity.ok(errorResponse);
             }
             logger.info("Found employeeId: {} for sessionId: {}", employeeId, extractedSessionId);
 
-            JsonNode parametersNode = dialogflowRequest.path("queryResult").path("parameters");
-            Map<String, String> parameters = objectMapper.convertValue(parametersNode, Map.class);
-            logger.info("Parameters: {}", parameters);
+            Map<String, String> parameters = dialogflowRequest.parameters();
+            logger.debug("Parameters: {}", parameters);
+
+            IntentRequest intentRequest = new IntentRequest(intentName, extractedSessionId, employeeId,
+                    dialogflowRequest.queryText(), parameters, deadline);
 
             ObjectNode webhookResponse = objectMapper.createObjectNode();
-            String fulfillmentText;
-
-            switch (intentName) {
-                case "LeavePolicyInquiry":
-                    String leaveType = parameters.get("leaveType");
-                    if (leaveType != null && !leaveType.isEmpty()) {
-                        // Pass employeeId to the fetch method
-                        fulfillmentText = fetchLeavePolicyFromYii2(employeeId, leaveType);
-                    } else {
-                        fulfillmentText = "Please specify which type of leave you'd like to know about (e.g., annual leave, sick leave).";
-                    }
-                    webhookResponse.put("fulfillmentText", fulfillmentText);
-                    break;
-
-                case "Payroll_Query":
-                    String payrollTopic = parameters.get("payrollTopic");
-                    if (payrollTopic != null && !payrollTopic.isEmpty()) {
-                        // Pass employeeId to the fetch method
-                        fulfillmentText = fetchPayrollInfoFromYii2(employeeId, payrollTopic);
-                    } else {
-                        fulfillmentText = "I can help with payroll questions. Are you asking about pay dates, how to access your pay stub, or something else?";
-                    }
-                    webhookResponse.put("fulfillmentText", fulfillmentText);
-                    break;
-
-                case "HR_Contact_Information":
-                    String department = parameters.get("department");
-                    if (department != null && !department.isEmpty()) {
-                        fulfillmentText = fetchHRContactInfoFromYii2(department); // This might not need employeeId
-                    } else {
-                        fulfillmentText = "Which HR department's contact information are you looking for? (e.g., Benefits, Payroll, Recruitment, or General HR)";
-                    }
-                    webhookResponse.put("fulfillmentText", fulfillmentText);
-                    break;
-
-                case "AskDeepSeek":
-                    String userInput = dialogflowRequest.path("queryResult").path("queryText").asText();
-                    fulfillmentText = deepseekService.getCompletion(userInput);
-                    webhookResponse.put("fulfillmentText", fulfillmentText);
-                    break;
-
-                default:
-                    fulfillmentText = "Sorry, I'm unable to process that request at the moment. Please try asking in a different way or contact HR directly.";
-                    logger.warn("Unhandled intent in webhook: {}", intentName);
-                    webhookResponse.put("fulfillmentText", fulfillmentText);
-                    break;
+            long handlerStart = System.nanoTime();
+            // Bound so Yii2 and LLM calls made by the handler land in this trace
+            try (RequestTrace.Scope ignored = trace.bind()) {
+                reply = intentHandlerRegistry.dispatch(intentRequest);
+                webhookResponse.put("fulfillmentText", reply);
+            } finally {
+                trace.stage("handler", System.nanoTime() - handlerStart);
             }
+            outcome = "success";
 
             return ResponseEntity.ok(webhookResponse);
 
+        } catch (JsonProcessingException e) {
+            logger.warn("Malformed webhook request: {}", e.getOriginalMessage());
+            outcome = "bad_request";
+            ObjectNode errorResponse = objectMapper.createObjectNode();
+            errorResponse.put("fulfillmentText", "An error occurred while fetching information. Please try again later or contact HR directly if the issue persists.");
+            return ResponseEntity.badRequest().body(errorResponse);
         } catch (Exception e) {
             logger.error("Error processing webhook request", e);
             ObjectNode errorResponse = objectMapper.createObjectNode();
             errorResponse.put("fulfillmentText", "An error occurred while fetching information. Please try again later or contact HR directly if the issue persists.");
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
-        }
-    }
-
-    // --- Modified methods to fetch data from Yii2 API with employeeId ---
-
-    private String fetchLeavePolicyFromYii2(String employeeId, String leaveType) {
-        String leaveBalancesEndpoint = yii2ApiBaseUrl + "/leavebalances/index";
-        URI uri = UriComponentsBuilder.fromUriString(leaveBalancesEndpoint)
-                .queryParam("employee", employeeId) // Pass employeeId
-                .queryParam("leavetype", leaveType)
-                .build()
-                .toUri();
-
-        try {
-            logger.info("Calling Yii2 API for leave policy: {}", uri);
-            ResponseEntity<JsonNode> response = restTemplate.getForEntity(uri, JsonNode.class);
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                // Example: Yii2 returns {"status":"success", "data":{"type":"annual", "balance":20}}
-                JsonNode dataNode = response.getBody().path("data");
-                if (dataNode.isObject()) {
-                    String type = dataNode.path("leavetype").asText();
-                    String balance = dataNode.path("balance").asText();
-                    if (!type.isEmpty() && !balance.isEmpty()) {
-                        return "Your " + type + " leave balance is " + balance + " days.";
-                    }
-                }
-                return "Could not find specific policy or balance details for " + leaveType + ". Please check the HR portal.";
-            } else {
-                logger.warn("Yii2 API call for leave policy failed with status: {}", response.getStatusCode());
-                return "Sorry, I couldn't retrieve your leave balance at this time. Please try again later.";
+        } finally {
+            traceBuffer.record(trace.outcome(outcome));
+            if (dialogflowRequest != null) {
+                transcript("webhook", dialogflowRequest.sessionId(), employeeId, dialogflowRequest.intentName(),
+                        dialogflowRequest.queryText(), reply, outcome, start);
             }
-        } catch (HttpClientErrorException | HttpServerErrorException e) {
-            logger.error("HTTP error calling Yii2 API for leave policy ({}): {}", e.getStatusCode(), e.getResponseBodyAsString(), e);
-            return "There was an issue connecting to the policy system. Please try again or contact HR directly.";
-        } catch (ResourceAccessException e) {
-            logger.error("Network error accessing Yii2 API for leave policy: {}", e.getMessage(), e);
-            return "I'm having trouble reaching the HR system. Please try again in a moment.";
-        } catch (Exception e) {
-            logger.error("Unexpected error calling Yii2 API for leave policy: {}", e.getMessage(), e);
-            return "An unexpected error occurred while getting leave policy. Please try again.";
-        }
-    }
-
-    private String fetchPayrollInfoFromYii2(String employeeId, String payrollTopic) {
-        String endpoint = yii2ApiBaseUrl + "/payroll/apilist"; // Example endpoint
-        URI uri = UriComponentsBuilder.fromUriString(endpoint)
-                .queryParam("employee_id", employeeId) // Pass employeeId
-                .queryParam("topic", payrollTopic)
-                .build()
-                .toUri();
-
-        try {
-            logger.info("Calling Yii2 API for payroll info: {}", uri);
-            ResponseEntity<JsonNode> response = restTemplate.getForEntity(uri, JsonNode.class);
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                JsonNode dataNode = response.getBody().path("data");
-                if (dataNode.isObject()) {
-                    if ("pay dates".equalsIgnoreCase(payrollTopic)) {
-                        String nextPayDate = dataNode.path("next_pay_date").asText();
-                        if (!nextPayDate.isEmpty()) {
-                            return "Your next pay date is " + nextPayDate + ".";
-                        }
-                    } else if ("pay stubs".equalsIgnoreCase(payrollTopic)) {
-                        String portalLink = dataNode.path("portal_link").asText();
-                        if (!portalLink.isEmpty()) {
-                            return "You can access your latest pay stub at: " + portalLink;
-                        }
-                    }
-                    // Add more logic for 'deductions' etc.
-                }
-                return "Could not find specific payroll information for " + payrollTopic + ". Please check the HR portal.";
-            } else {
-                logger.warn("Yii2 API call for payroll info failed with status: {}", response.getStatusCode());
-                return "Sorry, I couldn't retrieve payroll information at this time. Please try again later.";
-            }
-        } catch (Exception e) {
-            logger.error("Error calling Yii2 API for payroll info: {}", e.getMessage(), e);
-            return "An error occurred while fetching payroll details. Please try again.";
-        }
-    }
-
-    private String fetchHRContactInfoFromYii2(String department) {
-        // This might be general info, not needing employeeId
-        String endpoint = yii2ApiBaseUrl + "/hr-contacts/apilist";
-        URI uri = UriComponentsBuilder.fromUriString(endpoint)
-                .queryParam("department", department)
-                .build()
-                .toUri();
-
-        try {
-            logger.info("Calling Yii2 API for HR contact info: {}", uri);
-            ResponseEntity<JsonNode> response = restTemplate.getForEntity(uri, JsonNode.class);
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                JsonNode dataNode = response.getBody().path("data");
-                if (dataNode.isObject()) {
-                    String contactName = dataNode.path("name").asText();
-                    String contactEmail = dataNode.path("email").asText();
-                    if (!contactName.isEmpty() && !contactEmail.isEmpty()) {
-                        return "For " + department + ", contact " + contactName + " at " + contactEmail + ".";
-                    }
-                }
-                return "Could not find specific contact details for " + department + " department. Please check the HR portal.";
-            } else {
-                logger.warn("Yii2 API call for HR contact info failed with status: {}", response.getStatusCode());
-                return "Sorry, I couldn't retrieve contact information at this time. Please try again later.";
-            }
-        } catch (Exception e) {
-            logger.error("Error calling Yii2 API for HR contact info: {}", e.getMessage(), e);
-            return "An error occurred while fetching contact details. Please try again.";
+            sample.stop(Timer.builder("webhook.request")
+                    .description("Dialogflow fulfillment webhook, end to end")
+                    .tag("intent", intentTag)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.example.dialogflow.controller;
+
+import com.example.dialogflow.dto.BulkProvisioningReport;
+import com.example.dialogflow.service.user.BulkUserProvisioningService;
+import com.example.dialogflow.service.user.UserDirectoryService;
+import com.example.dialogflow.utils.GenericUtils;
+import com.example.dialogflow.utils.ResponseUtil;
+import com.example.dialogflow.utils.constants.Constants;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/users")
+public class UserController {
+
+    private final BulkUserProvisioningService bulkUserProvisioningService;
+    private final UserDirectoryService userDirectoryService;
+
+    public UserController(BulkUserProvisioningService bulkUserProvisioningService,
+                          UserDirectoryService userDirectoryService) {
+        this.bulkUserProvisioningService = bulkUserProvisioningService;
+        this.userDirectoryService = userDirectoryService;
+    }
+
+    // Keyset pages: ?afterId=<nextAfterId from the previous page>&pageSize=50, plus &withCount=true for
+    // the approximate total. Clients sending ?page=&pageSize= get the old Pagination shape instead.
+    @GetMapping
+    public ResponseEntity<Object> listUsers(@RequestParam Map<String, String> params) {
+        int pageSize;
+        int afterId;
+        try {
+            pageSize = Integer.parseInt(params.getOrDefault(Constants.PAGESIZE, "50"));
+            afterId = Integer.parseInt(params.getOrDefault("afterId", "0"));
+        } catch (NumberFormatException e) {
+            return ResponseUtil.buildResponse(HttpStatus.BAD_REQUEST, Constants.INVALID_ENTRY + e.getMessage());
+        }
+
+        if (params.containsKey(Constants.PAGE) && !params.containsKey("afterId")) {
+            int page;
+            try {
+                page = Integer.parseInt(params.get(Constants.PAGE));
+            } catch (NumberFormatException e) {
+                return ResponseUtil.buildResponse(HttpStatus.BAD_REQUEST, Constants.INVALID_ENTRY + e.getMessage());
+            }
+            UserDirectoryService.OffsetPage offsetPage = userDirectoryService.listPage(page, pageSize);
+            if (offsetPage.users().isEmpty()) {
+                return GenericUtils.noRecordsFound();
+            }
+            Map<String, Object> body = GenericUtils.getRecordsResponse(params, offsetPage.pagination(), offsetPage.users());
+            body.put("nextAfterId", offsetPage.nextAfterId());
+            return ResponseUtil.buildResponse(HttpStatus.OK, Constants.SUCCESS, body);
+        }
+
+        UserDirectoryService.KeysetPage keysetPage = userDirectoryService.listAfter(afterId, pageSize);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put(Constants.PAGESIZE, keysetPage.pageSize());
+        body.put("nextAfterId", keysetPage.nextAfterId());
+        if (Boolean.parseBoolean(params.get("withCount"))) {
+            body.put("approximateCount", userDirectoryService.approximateCount());
+        }
+        body.put("data", keysetPage.users());
+        return ResponseUtil.buildResponse(HttpStatus.OK, Constants.SUCCESS, body);
+    }
+
+    // Every user with id > afterId as NDJSON, written while the database cursor is read
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers(@RequestParam(defaultValue = "0") int afterId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> userDirectoryService.streamAfter(afterId, out));
+    }
+
+    // One AppUserRequest JSON object per line; read as a stream, so uploads of any size are fine.
+    // Rows are committed chunk by chunk: a 200 can still report CONFLICT/INVALID/FAILED rows.
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Object> bulkProvision(HttpServletRequest request) {
+        try {
+            BulkProvisioningReport report = bulkUserProvisioningService.provision(request.getInputStream());
+            return ResponseUtil.buildResponse(HttpStatus.OK, Constants.SUCCESS, report);
+        } catch (IOException e) {
+            return ResponseUtil.buildResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
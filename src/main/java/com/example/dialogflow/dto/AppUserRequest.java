@@ -8,6 +8,8 @@ import lombok.*;
 @Data
 @Builder
 @RequiredArgsConstructor
+@NoArgsConstructor
+@AllArgsConstructor
 public class AppUserRequest {
     @NonNull
     private String password;
@@ -21,6 +23,11 @@ public class AppUserRequest {
     @NonNull
     private String location;
 
+    // Optional; both are unique when given
+    private String username;
+
+    private String phone;
+
 
     @Data
     @Builder
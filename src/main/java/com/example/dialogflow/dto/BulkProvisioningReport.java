@@ -0,0 +1,18 @@
+package com.example.dialogflow.dto;
+
+import java.util.List;
+
+// Result of POST /api/users/bulk: counts for the whole upload, plus the rows that were not created,
+// sorted by line. At most users.bulk.max-reported-rows of those are listed; problemsNotListed counts
+// the rest.
+public record BulkProvisioningReport(int total, int created, int conflicts, int invalid, int failed,
+                                     long elapsedMillis, List<Row> problems, int problemsNotListed) {
+
+    public enum Status {
+        CREATED, CONFLICT, INVALID, FAILED
+    }
+
+    // message explains why the row was not created (e.g. "email, phone already taken")
+    public record Row(int line, String email, Status status, String message) {
+    }
+}
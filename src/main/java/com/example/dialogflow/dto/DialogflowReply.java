@@ -0,0 +1,5 @@
+package com.example.dialogflow.dto;
+
+// Outcome of a detectIntent call: what to show the user plus the intent Dialogflow matched
+public record DialogflowReply(String intent, float confidence, String fulfillmentText) {
+}
@@ -0,0 +1,10 @@
+package com.example.dialogflow.dto;
+
+import com.example.dialogflow.model.Role;
+
+import java.time.LocalDateTime;
+
+// What the user listing returns for each app_user row; never the password hash
+public record UserSummary(int id, String email, String name, String username, String phone, String location,
+                          Role role, boolean active, LocalDateTime createdAt, LocalDateTime lastLogin) {
+}
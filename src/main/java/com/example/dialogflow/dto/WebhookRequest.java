@@ -0,0 +1,17 @@
+package com.example.dialogflow.dto;
+
+import java.util.Map;
+
+// The parts of a Dialogflow ES fulfillment request the webhook uses; see WebhookRequestReader
+public record WebhookRequest(
+        String session,
+        String intentName,
+        String queryText,
+        Map<String, String> parameters
+) {
+
+    // Dialogflow session path format: projects/project-id/agent/sessions/session-id
+    public String sessionId() {
+        return session.substring(session.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.dialogflow.model.repository;
+
+import com.example.dialogflow.authconfig.TokenRevocation;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+// Token revocations shared by every node. JwtService writes a row when a token or a user is revoked
+// and each node reloads the live rows periodically, so a revocation received by one node is enforced
+// by all of them. Rows are deleted once the tokens they cover have expired, which keeps the table to
+// the revocations that still matter.
+@Repository
+public class TokenRevocationRepository {
+
+    static final String TABLE = "user_service.token_revocation";
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE + " ("
+            + "token_id varchar(64), "
+            + "username varchar(255), "
+            + "revoked_at timestamptz NOT NULL, "
+            + "expires_at timestamptz NOT NULL, "
+            + "CHECK ((token_id IS NULL) <> (username IS NULL))"
+            + ")";
+    private static final String CREATE_EXPIRY_INDEX = "CREATE INDEX IF NOT EXISTS token_revocation_expires_idx ON "
+            + TABLE + " (expires_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile boolean tableCreated;
+
+    public TokenRevocationRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insert(TokenRevocation revocation) {
+        createTable();
+        jdbcTemplate.update("INSERT INTO " + TABLE + " (token_id, username, revoked_at, expires_at) VALUES (?, ?, ?, ?)",
+                revocation.tokenId(), revocation.username(), new Timestamp(revocation.revokedAt()),
+                new Timestamp(revocation.expiresAt()));
+    }
+
+    public List<TokenRevocation> findActive(long nowMillis) {
+        createTable();
+        return jdbcTemplate.query("SELECT token_id, username, revoked_at, expires_at FROM " + TABLE
+                        + " WHERE expires_at > ?",
+                (rs, rowNum) -> new TokenRevocation(rs.getString("token_id"), rs.getString("username"),
+                        rs.getTimestamp("revoked_at").getTime(), rs.getTimestamp("expires_at").getTime()),
+                new Timestamp(nowMillis));
+    }
+
+    public int deleteExpired(long nowMillis) {
+        createTable();
+        return jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE expires_at <= ?", new Timestamp(nowMillis));
+    }
+
+    private void createTable() {
+        if (!tableCreated) {
+            jdbcTemplate.execute(CREATE_TABLE);
+            jdbcTemplate.execute(CREATE_EXPIRY_INDEX);
+            tableCreated = true;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.dialogflow.model.repository;
+
+import com.example.dialogflow.service.transcript.TranscriptTurn;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Chat transcripts, range-partitioned by month on created_at (UTC) so old months can be detached or
+// dropped without a bulk DELETE, and audits for a period only scan that period's partitions.
+// Partitions are created ahead of time by ensureSchema and, for a month nobody created yet, just
+// before the first insert that needs one.
+//
+// Each insert is a single multi-row INSERT ... VALUES (...), (...), one round trip and one WAL flush
+// per batch instead of per turn.
+@Slf4j
+@Repository
+public class TranscriptRepository {
+
+    static final String TABLE = "user_service.chat_transcript";
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE + " ("
+            + "created_at timestamptz NOT NULL, "
+            + "channel varchar(16) NOT NULL, "
+            + "session_id varchar(255), "
+            + "employee_id varchar(64), "
+            + "intent varchar(255), "
+            + "message text, "
+            + "reply text, "
+            + "outcome varchar(32) NOT NULL, "
+            + "latency_ms integer NOT NULL"
+            + ") PARTITION BY RANGE (created_at)";
+    private static final String CREATE_SESSION_INDEX = "CREATE INDEX IF NOT EXISTS chat_transcript_session_idx ON "
+            + TABLE + " (session_id, created_at)";
+    private static final String INSERT_PREFIX = "INSERT INTO " + TABLE
+            + " (created_at, channel, session_id, employee_id, intent, message, reply, outcome, latency_ms) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 9;
+    // Postgres caps a statement at 65535 bind parameters
+    private static final int MAX_ROWS_PER_STATEMENT = 65535 / COLUMNS;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Set<YearMonth> partitions = ConcurrentHashMap.newKeySet();
+    private volatile boolean tableCreated;
+
+    public TranscriptRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Creates the parent table and the partitions from this month through monthsAhead months from now
+    public void ensureSchema(YearMonth current, int monthsAhead) {
+        createTable();
+        for (int i = 0; i <= monthsAhead; i++) {
+            ensurePartition(current.plusMonths(i));
+        }
+    }
+
+    public void insert(List<TranscriptTurn> turns) {
+        if (turns.isEmpty()) {
+            return;
+        }
+        createTable();
+        Set<YearMonth> months = new TreeSet<>();
+        turns.forEach(turn -> months.add(YearMonth.from(turn.at().atOffset(ZoneOffset.UTC))));
+        months.forEach(this::ensurePartition);
+
+        for (int from = 0; from < turns.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<TranscriptTurn> rows = turns.subList(from, Math.min(turns.size(), from + MAX_ROWS_PER_STATEMENT));
+            jdbcTemplate.update(insertSql(rows.size()), ps -> {
+                int i = 1;
+                for (TranscriptTurn turn : rows) {
+                    ps.setTimestamp(i++, Timestamp.from(turn.at()));
+                    ps.setString(i++, turn.channel());
+                    ps.setString(i++, turn.sessionId());
+                    ps.setString(i++, turn.employeeId());
+                    ps.setString(i++, turn.intent());
+                    ps.setString(i++, turn.message());
+                    ps.setString(i++, turn.reply());
+                    ps.setString(i++, turn.outcome());
+                    ps.setObject(i++, (int) Math.min(Integer.MAX_VALUE, turn.latencyMillis()), Types.INTEGER);
+                }
+            });
+        }
+    }
+
+    static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW.length() + 2)).append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ", ").append(ROW);
+        }
+        return sql.toString();
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("%s_y%04dm%02d", TABLE, month.getYear(), month.getMonthValue());
+    }
+
+    private void createTable() {
+        if (!tableCreated) {
+            jdbcTemplate.execute(CREATE_TABLE);
+            jdbcTemplate.execute(CREATE_SESSION_INDEX);
+            tableCreated = true;
+        }
+    }
+
+    private void ensurePartition(YearMonth month) {
+        if (partitions.contains(month)) {
+            return;
+        }
+        // Bounds are written with an explicit UTC offset so they don't depend on the session time zone
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF " + TABLE
+                + " FOR VALUES FROM ('" + month.atDay(1) + " 00:00:00+00') TO ('"
+                + month.plusMonths(1).atDay(1) + " 00:00:00+00')");
+        partitions.add(month);
+        log.info("Transcript partition {} ready", partitionName(month));
+    }
+}
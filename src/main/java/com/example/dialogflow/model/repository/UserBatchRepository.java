@@ -0,0 +1,136 @@
+package com.example.dialogflow.model.repository;
+
+import com.example.dialogflow.model.Role;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Bulk inserts into user_service.app_user with plain JDBC. Users maps app_user_id_seq with
+// allocationSize = 1, so JPA pays a nextval round trip per row. Here one query reserves the whole
+// chunk's ids, one JDBC batch inserts the rows, and ON CONFLICT DO NOTHING turns a taken email,
+// username or phone into a skipped row instead of an aborted batch.
+@Repository
+public class UserBatchRepository {
+
+    private static final String RESERVE_IDS =
+            "SELECT nextval('user_service.app_user_id_seq') FROM generate_series(1, ?)";
+    private static final String INSERT = "INSERT INTO user_service.app_user "
+            + "(id, email, name, username, phone, location, password_hash, role, is_active, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, false, ?) ON CONFLICT DO NOTHING";
+    private static final String EXISTING_IDS = "SELECT id FROM user_service.app_user WHERE id = ANY(?)";
+    private static final String TAKEN = "SELECT email, username, phone FROM user_service.app_user "
+            + "WHERE email = ANY(?) OR username = ANY(?) OR phone = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // One outcome per row, in order. Rows are inserted as inactive USERs; the whole chunk commits together.
+    @Transactional
+    public List<InsertOutcome> insertIgnoringConflicts(List<NewUserRow> rows) {
+        List<Long> ids = jdbcTemplate.queryForList(RESERVE_IDS, Long.class, rows.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        int[] counts = jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                NewUserRow row = rows.get(i);
+                ps.setLong(1, ids.get(i));
+                ps.setString(2, row.email());
+                ps.setString(3, row.name());
+                ps.setString(4, row.username());
+                ps.setString(5, row.phone());
+                ps.setString(6, row.location());
+                ps.setString(7, row.passwordHash());
+                ps.setString(8, Role.USER.name());
+                ps.setTimestamp(9, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+
+        Set<Long> inserted = insertedIds(ids, counts);
+        if (inserted.size() == rows.size()) {
+            return ids.stream().map(id -> new InsertOutcome(id, List.of())).toList();
+        }
+
+        // Find out which unique columns the skipped rows collided with, in one query
+        List<NewUserRow> skipped = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (!inserted.contains(ids.get(i))) {
+                skipped.add(rows.get(i));
+            }
+        }
+        Set<String> takenEmails = new HashSet<>();
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenPhones = new HashSet<>();
+        jdbcTemplate.query(TAKEN, rs -> {
+            takenEmails.add(rs.getString("email"));
+            takenUsernames.add(rs.getString("username"));
+            takenPhones.add(rs.getString("phone"));
+        }, skipped.stream().map(NewUserRow::email).toArray(String[]::new),
+                skipped.stream().map(NewUserRow::username).toArray(String[]::new),
+                skipped.stream().map(NewUserRow::phone).toArray(String[]::new));
+
+        List<InsertOutcome> outcomes = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            if (inserted.contains(ids.get(i))) {
+                outcomes.add(new InsertOutcome(ids.get(i), List.of()));
+                continue;
+            }
+            NewUserRow row = rows.get(i);
+            List<String> conflicts = new ArrayList<>(3);
+            if (takenEmails.contains(row.email())) {
+                conflicts.add("email");
+            }
+            if (row.username() != null && takenUsernames.contains(row.username())) {
+                conflicts.add("username");
+            }
+            if (row.phone() != null && takenPhones.contains(row.phone())) {
+                conflicts.add("phone");
+            }
+            outcomes.add(new InsertOutcome(null, conflicts));
+        }
+        return outcomes;
+    }
+
+    // The driver reports SUCCESS_NO_INFO for every row when reWriteBatchedInserts is on; ask the table then
+    private Set<Long> insertedIds(List<Long> ids, int[] counts) {
+        Set<Long> inserted = new HashSet<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                inserted.clear();
+                inserted.addAll(jdbcTemplate.queryForList(EXISTING_IDS, Long.class, (Object) ids.toArray(Long[]::new)));
+                return inserted;
+            }
+            if (counts[i] > 0) {
+                inserted.add(ids.get(i));
+            }
+        }
+        return inserted;
+    }
+
+    public record NewUserRow(String email, String name, String username, String phone, String location,
+                             String passwordHash) {
+    }
+
+    // id is null when the row was skipped; conflicts then names the unique columns already taken
+    public record InsertOutcome(Long id, List<String> conflicts) {
+    }
+}
@@ -1,10 +1,42 @@
 package com.example.dialogflow.model.repository;
 
+import com.example.dialogflow.dto.UserSummary;
 import com.example.dialogflow.model.Users;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<Users, Long> {
 
+    String SUMMARY = "SELECT new com.example.dialogflow.dto.UserSummary(u.id, u.email, u.name, u.username, u.phone, "
+            + "u.location, u.role, u.isActive, u.createdAt, u.lastLogin) FROM Users u ";
+
     Users findByUsername(String username);
+
+    // Keyset (seek) page: the primary key index jumps straight to afterId, however deep the page.
+    // Pass PageRequest.of(0, size) so only a LIMIT is applied, never an OFFSET.
+    @Query(SUMMARY + "WHERE u.id > :afterId ORDER BY u.id")
+    List<UserSummary> findSummariesAfter(@Param("afterId") int afterId, Pageable limit);
+
+    // Offset page, for clients still sending page/pageSize
+    @Query(SUMMARY + "ORDER BY u.id")
+    List<UserSummary> findSummaries(Pageable page);
+
+    // Read through a server-side cursor; only valid inside a transaction, and the stream must be closed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(SUMMARY + "WHERE u.id > :afterId ORDER BY u.id")
+    Stream<UserSummary> streamSummariesAfter(@Param("afterId") int afterId);
+
+    // Planner statistics instead of COUNT(*): free, and as fresh as the last ANALYZE/autovacuum.
+    // -1 when the table has never been analyzed.
+    @Query(value = "SELECT reltuples::bigint FROM pg_class WHERE oid = 'user_service.app_user'::regclass",
+            nativeQuery = true)
+    long approximateCount();
 }
@@ -0,0 +1,233 @@
+package com.example.dialogflow.service;
+
+import com.example.dialogflow.dto.ChatRequest;
+import com.example.dialogflow.dto.ChatResponse;
+import com.example.dialogflow.dto.DialogflowReply;
+import com.example.dialogflow.service.faq.FaqService;
+import com.example.dialogflow.service.transcript.TranscriptTurn;
+import com.example.dialogflow.service.transcript.TranscriptWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// Runs a batch of chat messages against Dialogflow with bounded parallelism. Messages are grouped by
+// sessionId: groups run concurrently, messages within a group run one after another in input order,
+// since each turn can depend on the contexts the previous one set.
+//
+// Nothing here blocks a thread. At most chat.batch.parallelism "lanes" each take a session group off a
+// shared queue, chain its messages with thenCompose, and take the next group when the last message's
+// reply arrives. The whole batch is bounded by chat.batch.timeout-ms: messages still in flight then
+// are cancelled and answered with a timeout error in their slots. Each message's outcome is written to
+// the transcript store on channel "batch".
+@Slf4j
+@Service
+public class ChatBatchService {
+
+    private static final String ERROR_REPLY = "Sorry, I encountered an error processing your request";
+
+    private final DialogflowService dialogflowService;
+    private final SessionIdEmployeeIdMappingService mappingService;
+    private final FaqService faqService;
+    private final int parallelism;
+    private final int maxBatchSize;
+    private final long timeoutMillis;
+    private final Consumer<TranscriptTurn> transcripts;
+
+    @Autowired
+    public ChatBatchService(
+            DialogflowService dialogflowService,
+            SessionIdEmployeeIdMappingService mappingService,
+            FaqService faqService,
+            TranscriptWriter transcriptWriter,
+            @Value("${chat.batch.parallelism:8}") int parallelism,
+            @Value("${chat.batch.max-size:100}") int maxBatchSize,
+            @Value("${chat.batch.timeout-ms:30000}") long timeoutMillis
+    ) {
+        this(dialogflowService, mappingService, faqService, transcriptWriter::submit, parallelism, maxBatchSize,
+                timeoutMillis);
+    }
+
+    ChatBatchService(DialogflowService dialogflowService, SessionIdEmployeeIdMappingService mappingService,
+                     FaqService faqService, Consumer<TranscriptTurn> transcripts, int parallelism, int maxBatchSize,
+                     long timeoutMillis) {
+        this.dialogflowService = dialogflowService;
+        this.mappingService = mappingService;
+        this.faqService = faqService;
+        this.transcripts = transcripts;
+        this.parallelism = parallelism;
+        this.maxBatchSize = maxBatchSize;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    // Completes with one ChatResponse per request, in input order. A failed or timed-out message
+    // yields an error response in its slot; it never fails the batch.
+    public CompletableFuture<List<ChatResponse>> process(List<ChatRequest> requests) {
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size " + requests.size() + " exceeds the limit of " + maxBatchSize);
+        }
+
+        // Messages without a sessionId each start their own conversation
+        String[] sessionIds = new String[requests.size()];
+        Map<String, List<Integer>> bySession = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String sessionId = requests.get(i).getSessionId() != null ?
+                    requests.get(i).getSessionId() : UUID.randomUUID().toString();
+            sessionIds[i] = sessionId;
+            bySession.computeIfAbsent(sessionId, k -> new ArrayList<>()).add(i);
+        }
+
+        Batch batch = new Batch(requests, sessionIds, new ConcurrentLinkedQueue<>(bySession.values()));
+        long startNanos = System.nanoTime();
+        int lanes = Math.min(parallelism, bySession.size());
+        CompletableFuture<?>[] running = new CompletableFuture[lanes];
+        for (int lane = 0; lane < lanes; lane++) {
+            running[lane] = nextGroup(batch);
+        }
+
+        log.info("Processing chat batch of {} messages in {} sessions, parallelism {}",
+                requests.size(), bySession.size(), parallelism);
+        return CompletableFuture.allOf(running)
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .handle((v, e) -> {
+                    if (e != null) {
+                        batch.expire();
+                        log.warn("Chat batch of {} messages did not finish within {} ms", requests.size(), timeoutMillis);
+                    }
+                    boolean timedOut = e instanceof TimeoutException;
+                    for (int i = 0; i < requests.size(); i++) {
+                        ChatResponse unfinished = new ChatResponse(false, ERROR_REPLY, sessionIds[i],
+                                requests.get(i).getEmployeeId(), timedOut ? "Batch timed out" : "Batch failed");
+                        answer(batch, i, unfinished, null, timedOut ? "timeout" : "error", startNanos);
+                    }
+                    return batch.responses();
+                });
+    }
+
+    // Runs one session group's messages in order, then moves this lane on to the next group
+    private CompletableFuture<Void> nextGroup(Batch batch) {
+        List<Integer> group = batch.pending.poll();
+        if (group == null || batch.expired.get()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (int i : group) {
+            chain = chain.thenCompose(v -> processOne(batch, i));
+        }
+        return chain.thenCompose(v -> nextGroup(batch));
+    }
+
+    private CompletableFuture<Void> processOne(Batch batch, int i) {
+        if (batch.expired.get()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ChatRequest request = batch.requests.get(i);
+        String sessionId = batch.sessionIds[i];
+        String employeeId = request.getEmployeeId();
+        long startNanos = System.nanoTime();
+        try {
+            if (employeeId != null && !employeeId.isEmpty()) {
+                mappingService.saveMapping(sessionId, employeeId);
+            }
+            String faqAnswer = faqService.answer(request.getMessage());
+            if (faqAnswer != null) {
+                answer(batch, i, new ChatResponse(true, faqAnswer, sessionId, employeeId, null),
+                        "faq", "faq", startNanos);
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<DialogflowReply> reply = dialogflowService.detectIntentAsync(request.getMessage(), sessionId);
+            batch.inFlight.add(reply);
+            return reply.handle((dialogflowReply, e) -> {
+                batch.inFlight.remove(reply);
+                if (batch.expired.get()) {
+                    return null; // cancelled by the batch timeout, which fills the slot
+                }
+                if (e == null) {
+                    ChatResponse response = new ChatResponse(true, dialogflowReply.fulfillmentText(), sessionId,
+                            employeeId, null);
+                    answer(batch, i, response, dialogflowReply.intent(), "ok", startNanos);
+                } else {
+                    answer(batch, i, failed(sessionId, employeeId, e), null, "error", startNanos);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            answer(batch, i, failed(sessionId, employeeId, e), null, "error", startNanos);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    // Fills the slot unless the reply or the timeout already did, and writes the message's transcript turn
+    private void answer(Batch batch, int i, ChatResponse response, String intent, String outcome, long startNanos) {
+        if (!batch.respond(i, response)) {
+            return;
+        }
+        transcripts.accept(new TranscriptTurn(Instant.now(), "batch", batch.sessionIds[i],
+                batch.requests.get(i).getEmployeeId(), intent, batch.requests.get(i).getMessage(),
+                response.isSuccess() ? response.getReply() : null, outcome,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+    }
+
+    private static ChatResponse failed(String sessionId, String employeeId, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        log.warn("Batch message failed for session {}: {}", sessionId, cause.getMessage());
+        return new ChatResponse(false, ERROR_REPLY, sessionId, employeeId, cause.getMessage());
+    }
+
+    // Per-call state. A slot is written once: by its reply, or by the timeout, whichever comes first.
+    private static final class Batch {
+        private final List<ChatRequest> requests;
+        private final String[] sessionIds;
+        private final Queue<List<Integer>> pending;
+        private final AtomicReferenceArray<ChatResponse> responses;
+        private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean expired = new AtomicBoolean();
+
+        private Batch(List<ChatRequest> requests, String[] sessionIds, Queue<List<Integer>> pending) {
+            this.requests = requests;
+            this.sessionIds = sessionIds;
+            this.pending = pending;
+            this.responses = new AtomicReferenceArray<>(requests.size());
+        }
+
+        private boolean respond(int i, ChatResponse response) {
+            return responses.compareAndSet(i, null, response);
+        }
+
+        // Stops the lanes and cancels the Dialogflow calls still running
+        private void expire() {
+            expired.set(true);
+            inFlight.forEach(call -> call.cancel(true));
+        }
+
+        private List<ChatResponse> responses() {
+            List<ChatResponse> list = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                list.add(responses.get(i));
+            }
+            return list;
+        }
+    }
+}
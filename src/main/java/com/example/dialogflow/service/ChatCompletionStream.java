@@ -0,0 +1,46 @@
+package com.example.dialogflow.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+// Reads an OpenAI-compatible "stream": true chat completion (server-sent events, one JSON chunk per
+// "data:" line) and hands each content delta to the consumer as soon as its line arrives. Only one
+// line is held in memory at a time. DeepSeek uses the same wire format.
+public final class ChatCompletionStream {
+
+    private static final String DATA_PREFIX = "data:";
+    private static final String DONE = "[DONE]";
+
+    private ChatCompletionStream() {
+    }
+
+    // Returns the number of content deltas delivered
+    public static int read(InputStream body, ObjectMapper objectMapper, Consumer<String> onToken) throws IOException {
+        int tokens = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.startsWith(DATA_PREFIX)) {
+                continue; // blank separators, comments and keep-alives
+            }
+            String data = line.substring(DATA_PREFIX.length()).trim();
+            if (DONE.equals(data)) {
+                break;
+            }
+            JsonNode chunk = objectMapper.readTree(data);
+            JsonNode content = chunk.path("choices").path(0).path("delta").path("content");
+            if (content.isTextual() && !content.asText().isEmpty()) {
+                onToken.accept(content.asText());
+                tokens++;
+            }
+        }
+        return tokens;
+    }
+}
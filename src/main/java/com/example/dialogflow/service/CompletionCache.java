@@ -0,0 +1,154 @@
+package com.example.dialogflow.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+// LRU cache of LLM completions for general (non-personalized) questions. Prompts are keyed by a
+// SHA-256 of the model plus the prompt normalized for case, whitespace and punctuation, so
+// "How do I apply for leave?" and "how do i apply for leave" share an answer. Bounded by both
+// entry count and the estimated bytes held, with a TTL so answers eventually refresh.
+@Component
+public class CompletionCache {
+
+    private static final Pattern PUNCTUATION = Pattern.compile("[\\p{P}\\p{S}]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // Rough per-entry cost of the map node, key string and entry object
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private long bytesHeld;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public CompletionCache(
+            @Value("${llm.completion-cache.max-entries:2000}") int maxEntries,
+            @Value("${llm.completion-cache.max-bytes:8388608}") long maxBytes,
+            @Value("${llm.completion-cache.ttl-minutes:720}") long ttlMinutes
+    ) {
+        this(maxEntries, maxBytes, TimeUnit.MINUTES.toMillis(ttlMinutes), System::currentTimeMillis);
+    }
+
+    CompletionCache(int maxEntries, long maxBytes, long ttlMillis, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    public String get(String model, String prompt) {
+        String key = key(model, prompt);
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && clock.getAsLong() - entry.storedAt < ttlMillis) {
+                hits.increment();
+                return entry.completion;
+            }
+            if (entry != null) {
+                remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(String model, String prompt, String completion) {
+        Entry entry = new Entry(completion, clock.getAsLong(), estimateBytes(completion));
+        if (entry.bytes > maxBytes) {
+            return; // would evict everything else
+        }
+        String key = key(model, prompt);
+        lock.lock();
+        try {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                bytesHeld -= previous.bytes;
+            }
+            bytesHeld += entry.bytes;
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || bytesHeld > maxBytes) && eldest.hasNext()) {
+                bytesHeld -= eldest.next().getValue().bytes;
+                eldest.remove();
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CompletionCacheStats getStats() {
+        int size;
+        long bytes;
+        lock.lock();
+        try {
+            size = entries.size();
+            bytes = bytesHeld;
+        } finally {
+            lock.unlock();
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        double hitRatio = hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount);
+        return new CompletionCacheStats(size, bytes, hitCount, missCount, hitRatio, evictions.sum());
+    }
+
+    static String normalize(String prompt) {
+        String lower = prompt.toLowerCase(Locale.ROOT);
+        String noPunctuation = PUNCTUATION.matcher(lower).replaceAll(" ");
+        return WHITESPACE.matcher(noPunctuation).replaceAll(" ").trim();
+    }
+
+    static String key(String model, String prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalize(prompt).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytesHeld -= removed.bytes;
+        }
+    }
+
+    private static long estimateBytes(String completion) {
+        return ENTRY_OVERHEAD_BYTES + 2L * completion.length();
+    }
+
+    private record Entry(String completion, long storedAt, long bytes) {
+    }
+
+    public record CompletionCacheStats(int size, long bytes, long hits, long misses, double hitRatio, long evictions) {
+    }
+}
@@ -1,50 +1,172 @@
 package com.example.dialogflow.service;
 
+import com.example.dialogflow.service.resilience.ClientDisconnectedException;
+import com.example.dialogflow.service.resilience.Dependency;
+import com.example.dialogflow.service.resilience.DependencyGuard;
+import com.example.dialogflow.service.resilience.DependencyGuards;
+import com.example.dialogflow.service.resilience.DependencyUnavailableException;
+import com.example.dialogflow.service.trace.RequestTrace;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
+@Slf4j
 @Service
 public class DeepseekService {
     @Value("${openai.api.key}")
     private String apiKey;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+    private final LlmStreamClient streamClient;
+    private final MeterRegistry meterRegistry;
+    private final DependencyGuard guard;
+    private final DependencyGuard streamGuard;
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     private final String DEEPSEEK_URL = "https://api.deepseek.com/v1/chat/completions";
+    private final String MODELS_URL = "https://api.deepseek.com/models";
+    private final String MODEL = "gpt-4";
+    private final String CACHE_MODEL_KEY = "deepseek/" + MODEL;
+
+    private final CompletionCache completionCache;
+
+    public DeepseekService(@Lazy @Qualifier("llmRestTemplate") RestTemplate restTemplate,
+                           @Lazy LlmStreamClient streamClient, CompletionCache completionCache,
+                           MeterRegistry meterRegistry, DependencyGuards dependencyGuards) {
+        this.restTemplate = restTemplate;
+        this.streamClient = streamClient;
+        this.meterRegistry = meterRegistry;
+        this.guard = dependencyGuards.get(Dependency.DEEPSEEK);
+        this.streamGuard = dependencyGuards.get(Dependency.DEEPSEEK_STREAM);
+        this.completionCache = completionCache;
+    }
 
     public String getCompletion(String userMessage) {
+        return getCompletion(userMessage, true);
+    }
+
+    // cacheable=false opts out of the completion cache, for prompts that carry personal details
+    public String getCompletion(String userMessage, boolean cacheable) {
+        if (cacheable) {
+            String cached = completionCache.get(CACHE_MODEL_KEY, userMessage);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.setBearerAuth(apiKey);
 
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("model", "gpt-4");
-        requestBody.put("messages", List.of(
-                Map.of("role", "user", "content", userMessage)
-        ));
+        Map<String, Object> requestBody = buildRequestBody(userMessage);
 
         HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
 
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
         try {
-            ResponseEntity<Map> response = restTemplate.postForEntity(DEEPSEEK_URL, entity, Map.class);
+            ResponseEntity<Map> response = guard.call(() -> restTemplate.postForEntity(DEEPSEEK_URL, entity, Map.class));
             Map<String, Object> body = response.getBody();
 
-            return ((Map<String, String>) ((Map<String, Object>)
+            String completion = ((Map<String, String>) ((Map<String, Object>)
                     ((List<?>) body.get("choices")).get(0)).get("message")).get("content");
+            outcome = "success";
+            if (cacheable && completion != null) {
+                completionCache.put(CACHE_MODEL_KEY, userMessage, completion);
+            }
+            return completion;
 
+        } catch (DependencyUnavailableException e) {
+            // Expected while the circuit is open; one line per call, no stack trace
+            log.warn("Skipping DeepSeek completion: {}", e.getMessage());
+            return "Sorry, I had an issue talking to DeepSeek.";
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("DeepSeek completion failed", e);
             return "Sorry, I had an issue talking to DeepSeek.";
+        } finally {
+            RequestTrace.recordStage("deepseek", sample.stop(llmTimer("blocking", outcome)));
+            RequestTrace.recordDownstream("deepseek", outcome);
+        }
+    }
+
+    // Streams the completion, calling onToken for each content delta as the provider sends it.
+    // Errors are thrown to the caller, which decides what to tell the user. The stream guard covers the
+    // call up to the first token; a consumer that throws ClientDisconnectedException is not held
+    // against the provider.
+    public void streamCompletion(String userMessage, Consumer<String> onToken) {
+        Map<String, Object> requestBody = buildRequestBody(userMessage);
+        requestBody.put("stream", true);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(requestBody);
+            streamGuard.callUntilFirstToken(firstToken -> streamClient.post(DEEPSEEK_URL, apiKey, json,
+                    body -> ChatCompletionStream.read(body, objectMapper, token -> {
+                        firstToken.run();
+                        onToken.accept(token);
+                    })));
+            outcome = "success";
+        } catch (ClientDisconnectedException e) {
+            outcome = "cancelled";
+            throw e;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the completion request", e);
+        } finally {
+            sample.stop(llmTimer("stream", outcome));
+        }
+    }
+
+    // Opens the HTTP/2 connection (DNS, TLS, ALPN) with a cheap authenticated GET so the first completion
+    // does not pay for it. Any HTTP answer, even 401, means the connection is up; false means it is not.
+    public boolean warmUp() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(apiKey);
+        try {
+            restTemplate.exchange(MODELS_URL, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+            return true;
+        } catch (RestClientResponseException e) {
+            return true;
+        } catch (RestClientException e) {
+            return false;
         }
     }
-}
 
+    private Timer llmTimer(String mode, String outcome) {
+        return Timer.builder("llm.request")
+                .description("LLM chat completion call, to the last token when streaming")
+                .tag("provider", "deepseek")
+                .tag("mode", mode)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Map<String, Object> buildRequestBody(String userMessage) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", MODEL);
+        requestBody.put("messages", List.of(
+                Map.of("role", "user", "content", userMessage)
+        ));
+        return requestBody;
+    }
+}
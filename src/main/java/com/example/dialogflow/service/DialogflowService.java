@@ -1,7 +1,21 @@
 package com.example.dialogflow.service;
 
+import com.example.dialogflow.dto.DialogflowReply;
+import com.example.dialogflow.service.resilience.Dependency;
+import com.example.dialogflow.service.resilience.DependencyGuard;
+import com.example.dialogflow.service.resilience.DependencyGuards;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.core.InstantiatingExecutorProvider;
+import com.google.api.gax.grpc.ChannelPoolSettings;
+import com.google.api.gax.grpc.GrpcCallContext;
+import com.google.api.gax.rpc.DeadlineExceededException;
 import com.google.cloud.dialogflow.v2.*;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -13,31 +27,66 @@ import javax.annotation.PreDestroy;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
 
 @Slf4j
 @Service
 public class DialogflowService {
 
-    private SessionsClient sessionsClient;
+    private volatile SessionsClient sessionsClient;
+    private final ReentrantLock clientLock = new ReentrantLock();
+    private final boolean lazyInit;
     private final String projectId;
     private final String credentialsPath;
     private final String languageCode;
+    private final Duration detectIntentTimeout;
+    private final MeterRegistry meterRegistry;
+    private final DependencyGuard guard;
+    private final GrpcSettings grpcSettings;
 
     public DialogflowService(
             @Value("${google.credentials.path}") String credentialsPath,
             @Value("${dialogflow.project.id}") String projectId,
-            @Value("${dialogflow.language.code:en-US}") String languageCode
+            @Value("${dialogflow.language.code:en-US}") String languageCode,
+            @Value("${dialogflow.detect-intent.timeout-ms:10000}") long detectIntentTimeoutMs,
+            MeterRegistry meterRegistry,
+            DependencyGuards dependencyGuards,
+            @Value("${dialogflow.grpc.channels:2}") int channels,
+            @Value("${dialogflow.grpc.keepalive-seconds:60}") long keepAliveSeconds,
+            @Value("${dialogflow.grpc.keepalive-timeout-seconds:10}") long keepAliveTimeoutSeconds,
+            @Value("${dialogflow.grpc.max-inbound-message-bytes:4194304}") int maxInboundMessageBytes,
+            @Value("${dialogflow.grpc.executor-threads:4}") int executorThreads,
+            @Value("${dialogflow.lazy-init:false}") boolean lazyInit
     ) {
         this.credentialsPath = credentialsPath;
         this.projectId = projectId;
         this.languageCode = languageCode;
+        this.detectIntentTimeout = Duration.ofMillis(detectIntentTimeoutMs);
+        this.meterRegistry = meterRegistry;
+        this.guard = dependencyGuards.get(Dependency.DIALOGFLOW);
+        this.grpcSettings = new GrpcSettings(channels, Duration.ofSeconds(keepAliveSeconds),
+                Duration.ofSeconds(keepAliveTimeoutSeconds), maxInboundMessageBytes, executorThreads);
+        this.lazyInit = lazyInit;
     }
 
+    // With dialogflow.lazy-init the client (credentials, channel pool) is built by the first call that
+    // needs it instead, which DialogflowWarmup arranges to be its own background warm-up
     @PostConstruct
     public void init() throws IOException {
         validateConfiguration();
-        initializeSessionsClient();
+        if (!lazyInit) {
+            initializeSessionsClient();
+        }
     }
 
     private void validateConfiguration() {
@@ -53,13 +102,28 @@ public class DialogflowService {
         try (InputStream credentialsStream = getCredentialsStream()) {
             GoogleCredentials credentials = GoogleCredentials.fromStream(credentialsStream);
 
+            // A fixed pool of channels spreads concurrent RPCs over several HTTP/2 connections, and
+            // keepalive pings stop idle connections from being dropped by load balancers and NAT, so
+            // the first call after a quiet period does not pay for a new TLS handshake
             SessionsSettings settings = SessionsSettings.newBuilder()
                     .setCredentialsProvider(() -> credentials)
+                    .setBackgroundExecutorProvider(InstantiatingExecutorProvider.newBuilder()
+                            .setExecutorThreadCount(grpcSettings.executorThreads())
+                            .build())
+                    // Call completions stay on gax's own executor threads: the outbound executor runs
+                    // blocking work, and a completion queued behind it could never run
+                    .setTransportChannelProvider(SessionsSettings.defaultGrpcTransportProviderBuilder()
+                            .setChannelPoolSettings(ChannelPoolSettings.staticallySized(grpcSettings.channels()))
+                            .setKeepAliveTimeDuration(grpcSettings.keepAlive())
+                            .setKeepAliveTimeoutDuration(grpcSettings.keepAliveTimeout())
+                            .setKeepAliveWithoutCalls(true)
+                            .setMaxInboundMessageSize(grpcSettings.maxInboundMessageBytes())
+                            .build())
                     .build();
 
             this.sessionsClient = SessionsClient.create(settings);
 
-            log.info("Successfully initialized Dialogflow client for project {}", projectId);
+            log.info("Successfully initialized Dialogflow client for project {} with {}", projectId, grpcSettings);
         } catch (IOException e) {
             throw new IOException("Failed to initialize Dialogflow client. Please verify: " +
                     "1) Credentials file exists at path: " + credentialsPath +
@@ -67,6 +131,24 @@ public class DialogflowService {
         }
     }
 
+    private SessionsClient client() {
+        SessionsClient client = sessionsClient;
+        if (client != null) {
+            return client;
+        }
+        clientLock.lock();
+        try {
+            if (sessionsClient == null) {
+                initializeSessionsClient();
+            }
+            return sessionsClient;
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        } finally {
+            clientLock.unlock();
+        }
+    }
+
     private InputStream getCredentialsStream() throws IOException {
         if (credentialsPath.startsWith("classpath:")) {
             String path = credentialsPath.substring("classpath:".length());
@@ -79,11 +161,14 @@ public class DialogflowService {
     public String detectIntent(String message, String sessionId) {
         validateInputs(message, sessionId);
 
+        long start = System.nanoTime();
+        DetectIntentResponse response = null;
+        Throwable failure = null;
         try {
             SessionName session = SessionName.of(projectId, sessionId);
             QueryInput queryInput = buildQueryInput(message);
 
-            DetectIntentResponse response = sessionsClient.detectIntent(session, queryInput);
+            response = guard.call(() -> client().detectIntent(session, queryInput));
             QueryResult queryResult = response.getQueryResult();
             String intentName = queryResult.getIntent().getDisplayName();
 
@@ -98,12 +183,153 @@ public class DialogflowService {
             return queryResult.getFulfillmentText();
 
         } catch (Exception e) {
+            failure = e;
             log.error("Failed to detect intent for message: {}, session: {}", message, sessionId, e);
             throw new RuntimeException("Failed to process your message. Please try again.", e);
+        } finally {
+            recordDetect("text", start, response, failure);
         }
     }
 
-    private QueryInput buildQueryInput(String message) {
+    // Non-blocking variant of detectIntent: the calling thread is released while Dialogflow works.
+    // The gRPC deadline is dialogflow.detect-intent.timeout-ms, and completing or cancelling the
+    // returned future early (e.g. orTimeout) cancels the RPC.
+    public CompletableFuture<DialogflowReply> detectIntentAsync(String message, String sessionId) {
+        validateInputs(message, sessionId);
+        DetectIntentRequest request = DetectIntentRequest.newBuilder()
+                .setSession(SessionName.of(projectId, sessionId).toString())
+                .setQueryInput(buildQueryInput(message))
+                .build();
+
+        return detectAsync("text", request, (response, e) -> {
+            if (e != null) {
+                log.error("Failed to detect intent for message: {}, session: {}", message, sessionId, e);
+                throw new CompletionException(new RuntimeException("Failed to process your message. Please try again.", e));
+            }
+            QueryResult queryResult = response.getQueryResult();
+            log.debug("Dialogflow response - Intent: {}, Confidence: {}, Fulfillment: {}",
+                    queryResult.getIntent().getDisplayName(),
+                    queryResult.getIntentDetectionConfidence(),
+                    queryResult.getFulfillmentText());
+            log.info("Intent Detected: {}", queryResult.getIntent().getDisplayName());
+            return new DialogflowReply(queryResult.getIntent().getDisplayName(),
+                    queryResult.getIntentDetectionConfidence(), queryResult.getFulfillmentText());
+        });
+    }
+
+    public CompletableFuture<String> detectEventIntentAsync(String eventName, String sessionId) {
+        validateInputs(eventName, sessionId);
+        DetectIntentRequest request = DetectIntentRequest.newBuilder()
+                .setSession(SessionName.of(projectId, sessionId).toString())
+                .setQueryInput(buildEventInput(eventName))
+                .build();
+
+        return detectAsync("event", request, (response, e) -> {
+            if (e != null) {
+                log.error("Failed to detect event intent: {}, session: {}", eventName, sessionId, e);
+                throw new CompletionException(new RuntimeException("Failed to process event. Please try again.", e));
+            }
+            return response.getQueryResult().getFulfillmentText();
+        });
+    }
+
+    private <T> CompletableFuture<T> detectAsync(String type, DetectIntentRequest request,
+                                                 BiFunction<DetectIntentResponse, Throwable, T> handler) {
+        long start = System.nanoTime();
+        CompletableFuture<DetectIntentResponse> response = guard.callAsync(() -> startDetect(request));
+        response.whenComplete((r, e) -> recordDetect(type, start, r, e));
+
+        CompletableFuture<T> result = response.handle(handler);
+        result.whenComplete((reply, e) -> {
+            if (!response.isDone()) {
+                response.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    // Completing the returned future early (cancel, timeout) cancels the RPC
+    private CompletableFuture<DetectIntentResponse> startDetect(DetectIntentRequest request) {
+        ApiFuture<DetectIntentResponse> call = client().detectIntentCallable()
+                .futureCall(request, GrpcCallContext.createDefault().withTimeoutDuration(detectIntentTimeout));
+
+        CompletableFuture<DetectIntentResponse> response = new CompletableFuture<>();
+        ApiFutures.addCallback(call, new ApiFutureCallback<>() {
+            @Override
+            public void onSuccess(DetectIntentResponse result) {
+                response.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                response.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        response.whenComplete((r, e) -> {
+            if (!call.isDone()) {
+                call.cancel(true);
+            }
+        });
+        return response;
+    }
+
+    // Sends one throwaway query per pooled channel, all at once so they spread over the pool, so that
+    // TLS, HTTP/2 and OAuth token setup are paid before users arrive. Bypasses the circuit breaker and
+    // metrics, and uses fresh sessions so no conversation context is touched. Returns the number of
+    // calls that succeeded.
+    public int warmUp(String query, Duration timeout) {
+        List<ApiFuture<DetectIntentResponse>> calls = new ArrayList<>(grpcSettings.channels());
+        for (int i = 0; i < grpcSettings.channels(); i++) {
+            DetectIntentRequest request = DetectIntentRequest.newBuilder()
+                    .setSession(SessionName.of(projectId, "warmup-" + UUID.randomUUID()).toString())
+                    .setQueryInput(buildQueryInput(query))
+                    .build();
+            calls.add(client().detectIntentCallable()
+                    .futureCall(request, GrpcCallContext.createDefault().withTimeoutDuration(timeout)));
+        }
+
+        int succeeded = 0;
+        for (ApiFuture<DetectIntentResponse> call : calls) {
+            try {
+                call.get();
+                succeeded++;
+            } catch (ExecutionException e) {
+                log.warn("Dialogflow warm-up call failed: {}", e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                calls.forEach(c -> c.cancel(true));
+                break;
+            }
+        }
+        return succeeded;
+    }
+
+    // dialogflow.detect_intent{type, intent, outcome}; intent is "none" when no response came back
+    private void recordDetect(String type, long startNanos, DetectIntentResponse response, Throwable failure) {
+        String intent = response == null || response.getQueryResult().getIntent().getDisplayName().isEmpty() ?
+                "none" : response.getQueryResult().getIntent().getDisplayName();
+        Timer.builder("dialogflow.detect_intent")
+                .description("Dialogflow detectIntent round trip")
+                .tag("type", type)
+                .tag("intent", intent)
+                .tag("outcome", outcome(failure))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String outcome(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause == null) {
+            return "success";
+        }
+        if (cause instanceof CancellationException) {
+            return "cancelled";
+        }
+        return cause instanceof DeadlineExceededException ? "timeout" : "error";
+    }
+
+    QueryInput buildQueryInput(String message) {
         return QueryInput.newBuilder()
                 .setText(TextInput.newBuilder()
                         .setText(message)
@@ -111,6 +337,14 @@ public class DialogflowService {
                 .build();
     }
 
+    private QueryInput buildEventInput(String eventName) {
+        return QueryInput.newBuilder()
+                .setEvent(EventInput.newBuilder()
+                        .setName(eventName)
+                        .setLanguageCode(languageCode))
+                .build();
+    }
+
     private void validateInputs(String message, String sessionId) {
         if (message == null || message.trim().isEmpty()) {
             throw new IllegalArgumentException("Message cannot be empty");
@@ -141,20 +375,26 @@ public class DialogflowService {
     public String detectEventIntent(String eventName, String sessionId) {
         validateInputs(eventName, sessionId);
 
+        long start = System.nanoTime();
+        DetectIntentResponse response = null;
+        Throwable failure = null;
         try {
             SessionName session = SessionName.of(projectId, sessionId);
-            QueryInput queryInput = QueryInput.newBuilder()
-                    .setEvent(EventInput.newBuilder()
-                            .setName(eventName)
-                            .setLanguageCode(languageCode))
-                    .build();
+            QueryInput queryInput = buildEventInput(eventName);
 
-            DetectIntentResponse response = sessionsClient.detectIntent(session, queryInput);
+            response = guard.call(() -> client().detectIntent(session, queryInput));
             return response.getQueryResult().getFulfillmentText();
 
         } catch (Exception e) {
+            failure = e;
             log.error("Failed to detect event intent: {}, session: {}", eventName, sessionId, e);
             throw new RuntimeException("Failed to process event. Please try again.", e);
+        } finally {
+            recordDetect("event", start, response, failure);
         }
     }
-}
\ No newline at end of file
+
+    private record GrpcSettings(int channels, Duration keepAlive, Duration keepAliveTimeout,
+                                int maxInboundMessageBytes, int executorThreads) {
+    }
+}
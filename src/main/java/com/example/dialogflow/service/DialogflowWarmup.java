@@ -0,0 +1,102 @@
+package com.example.dialogflow.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntSupplier;
+
+// Primes the Dialogflow channel pool once the context is up. Spring Boot only marks the app as accepting
+// traffic after ApplicationRunners return, and this indicator ("dialogflowWarmup", part of the
+// readiness group in metrics.properties) reports OUT_OF_SERVICE until the warm-up has finished, so a
+// rolling node gets no users while its first RPCs are still paying for connection setup.
+//
+// With dialogflow.warmup.async (the fast-startup profile) the runner returns at once and the warm-up,
+// including building a lazily initialized client, runs on the outbound executor; the indicator keeps
+// the node out of rotation until it is done, while liveness and the rest of startup carry on.
+//
+// A failed warm-up still ends as UP (with the failure in the details): a Dialogflow outage is the
+// circuit breaker's business, and keeping every node unready would take the whole bot down with it.
+@Slf4j
+@Component("dialogflowWarmup")
+public class DialogflowWarmup implements ApplicationRunner, HealthIndicator {
+
+    private final IntSupplier warmUpCall;
+    private final boolean enabled;
+    private final Executor executor;
+    private volatile boolean finished;
+    private volatile int succeededCalls;
+    private volatile long elapsedMillis;
+    private volatile String error;
+
+    @Autowired
+    public DialogflowWarmup(
+            DialogflowService dialogflowService,
+            @Value("${dialogflow.warmup.enabled:true}") boolean enabled,
+            @Value("${dialogflow.warmup.query:hello}") String query,
+            @Value("${dialogflow.warmup.timeout-ms:5000}") long timeoutMs,
+            @Value("${dialogflow.warmup.async:false}") boolean async,
+            @Qualifier("outboundExecutor") ExecutorService outboundExecutor
+    ) {
+        this(() -> dialogflowService.warmUp(query, Duration.ofMillis(timeoutMs)), enabled,
+                async ? outboundExecutor : Runnable::run);
+    }
+
+    DialogflowWarmup(IntSupplier warmUpCall, boolean enabled) {
+        this(warmUpCall, enabled, Runnable::run);
+    }
+
+    DialogflowWarmup(IntSupplier warmUpCall, boolean enabled, Executor executor) {
+        this.warmUpCall = warmUpCall;
+        this.enabled = enabled;
+        this.executor = executor;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        executor.execute(this::warmUp);
+    }
+
+    void warmUp() {
+        if (!enabled) {
+            finished = true;
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            succeededCalls = warmUpCall.getAsInt();
+            log.info("Dialogflow warm-up finished: {} calls succeeded in {} ms", succeededCalls,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            error = e.getMessage();
+            log.warn("Dialogflow warm-up failed; first requests will pay for connection setup", e);
+        } finally {
+            elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            finished = true;
+        }
+    }
+
+    @Override
+    public Health health() {
+        if (!finished) {
+            return Health.outOfService().withDetail("warmup", "in progress").build();
+        }
+        if (!enabled) {
+            return Health.up().withDetail("warmup", "disabled").build();
+        }
+        Health.Builder health = Health.up()
+                .withDetail("warmup", "finished")
+                .withDetail("succeededCalls", succeededCalls)
+                .withDetail("elapsedMillis", elapsedMillis);
+        return error == null ? health.build() : health.withDetail("error", error).build();
+    }
+}
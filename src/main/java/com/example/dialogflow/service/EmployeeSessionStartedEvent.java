@@ -0,0 +1,5 @@
+package com.example.dialogflow.service;
+
+// Published when a chat session is first linked to an employee (not on every turn)
+public record EmployeeSessionStartedEvent(String sessionId, String employeeId) {
+}
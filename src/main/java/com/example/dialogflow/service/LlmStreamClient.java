@@ -0,0 +1,187 @@
+package com.example.dialogflow.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.UnknownHttpStatusCodeException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Streaming POSTs to the LLM providers. llmRestTemplate can't be used for these: the read timeout of
+// JdkClientHttpRequestFactory caps the whole exchange, cutting off any answer that takes longer.
+// Here a stream has no total limit (the caller's SseEmitter timeout is that). Instead the response
+// headers must arrive within http.client.llm.stream-idle-timeout-ms, and after that the body may go
+// quiet for at most as long between chunks before the read fails with HttpTimeoutException.
+@Lazy
+@Component
+public class LlmStreamClient {
+
+    private final HttpClient httpClient;
+    private final long idleTimeoutMillis;
+    private final ScheduledThreadPoolExecutor watchdog;
+
+    @Autowired
+    public LlmStreamClient(
+            @Qualifier("llmHttpClient") HttpClient httpClient,
+            @Value("${http.client.llm.stream-idle-timeout-ms:30000}") long idleTimeoutMillis
+    ) {
+        this.httpClient = httpClient;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.watchdog = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "llm-stream-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        this.watchdog.setRemoveOnCancelPolicy(true);
+    }
+
+    // Posts the JSON body and hands the event stream to the reader. Non-2xx answers are thrown as the
+    // usual RestTemplate exceptions, I/O failures and timeouts as ResourceAccessException. Exceptions
+    // thrown by the reader itself (e.g. ClientDisconnectedException) pass through unchanged.
+    public <T> T post(String url, String apiKey, byte[] json, BodyReader<T> reader) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(idleTimeoutMillis))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(json))
+                .build();
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (IdleTimeoutInputStream body = new IdleTimeoutInputStream(response.body())) {
+                int status = response.statusCode();
+                if (status / 100 != 2) {
+                    throw statusException(status, body.readAllBytes());
+                }
+                return reader.read(body);
+            }
+        } catch (IOException e) {
+            throw new ResourceAccessException("I/O error on POST request for \"" + url + "\": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted during POST request for \"" + url + "\"");
+        }
+    }
+
+    private static RuntimeException statusException(int status, byte[] body) {
+        HttpStatusCode statusCode = HttpStatusCode.valueOf(status);
+        String text = String.valueOf(status);
+        if (statusCode.is4xxClientError()) {
+            return HttpClientErrorException.create(statusCode, text, HttpHeaders.EMPTY, body, StandardCharsets.UTF_8);
+        }
+        if (statusCode.is5xxServerError()) {
+            return HttpServerErrorException.create(statusCode, text, HttpHeaders.EMPTY, body, StandardCharsets.UTF_8);
+        }
+        return new UnknownHttpStatusCodeException(status, text, HttpHeaders.EMPTY, body, StandardCharsets.UTF_8);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
+
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    // Closes the response once no bytes have arrived for the idle timeout. Closing the JDK client's
+    // stream wakes a blocked read with end-of-stream, so the timeout is reported on the next read.
+    private final class IdleTimeoutInputStream extends FilterInputStream {
+
+        private volatile long lastReadNanos = System.nanoTime();
+        private volatile boolean timedOut;
+        private volatile boolean closed;
+        private volatile ScheduledFuture<?> check;
+
+        private IdleTimeoutInputStream(InputStream in) {
+            super(in);
+            scheduleCheck(idleTimeoutMillis);
+        }
+
+        // Rescheduled lazily from the last read, so a busy stream costs no timer work per chunk
+        private void scheduleCheck(long delayMillis) {
+            check = watchdog.schedule(() -> {
+                if (closed) {
+                    return;
+                }
+                long idleMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastReadNanos);
+                if (idleMillis < idleTimeoutMillis) {
+                    scheduleCheck(idleTimeoutMillis - idleMillis);
+                    return;
+                }
+                timedOut = true;
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    // the reader sees the timeout either way
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b;
+            try {
+                b = super.read();
+            } catch (IOException e) {
+                throw timedOut ? timeout() : e;
+            }
+            touched(b >= 0);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n;
+            try {
+                n = super.read(buffer, offset, length);
+            } catch (IOException e) {
+                throw timedOut ? timeout() : e;
+            }
+            touched(n > 0);
+            return n;
+        }
+
+        private void touched(boolean gotBytes) throws HttpTimeoutException {
+            if (timedOut) {
+                throw timeout();
+            }
+            if (gotBytes) {
+                lastReadNanos = System.nanoTime();
+            }
+        }
+
+        private HttpTimeoutException timeout() {
+            return new HttpTimeoutException("No data from the LLM stream for " + idleTimeoutMillis + " ms");
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            check.cancel(false);
+            super.close();
+        }
+    }
+}
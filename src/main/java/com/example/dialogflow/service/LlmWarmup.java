@@ -0,0 +1,53 @@
+package com.example.dialogflow.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.function.BooleanSupplier;
+
+// With llm.warmup.enabled, builds the lazy LLM HTTP client and opens its connections to OpenAI and
+// DeepSeek in the background once the app has started, so neither startup nor the first user waits.
+// Not part of readiness: the LLM paths are optional and already have their own fallbacks.
+@Slf4j
+@Component
+public class LlmWarmup implements ApplicationRunner {
+
+    private final OpenAiService openAiService;
+    private final DeepseekService deepseekService;
+    private final ExecutorService outboundExecutor;
+    private final boolean enabled;
+
+    public LlmWarmup(
+            OpenAiService openAiService,
+            DeepseekService deepseekService,
+            @Qualifier("outboundExecutor") ExecutorService outboundExecutor,
+            @Value("${llm.warmup.enabled:false}") boolean enabled
+    ) {
+        this.openAiService = openAiService;
+        this.deepseekService = deepseekService;
+        this.outboundExecutor = outboundExecutor;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            warmUp("openai", openAiService::warmUp);
+            warmUp("deepseek", deepseekService::warmUp);
+        }
+    }
+
+    private void warmUp(String provider, BooleanSupplier call) {
+        outboundExecutor.execute(() -> {
+            long start = System.nanoTime();
+            boolean connected = call.getAsBoolean();
+            log.info("LLM warm-up for {} {} in {} ms", provider, connected ? "connected" : "could not connect",
+                    (System.nanoTime() - start) / 1_000_000);
+        });
+    }
+}
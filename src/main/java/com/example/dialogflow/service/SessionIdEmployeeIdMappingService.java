@@ -2,11 +2,20 @@ package com.example.dialogflow.service;
 
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
 import org.slf4j.LoggerFactory;
 
 @Service
@@ -15,47 +24,232 @@ public class SessionIdEmployeeIdMappingService {
     private static final Logger logger = LoggerFactory.getLogger(SessionIdEmployeeIdMappingService.class);
     // In-memory map to store sessionId -> employeeId mappings
     // IMPORTANT: For production, replace this with a distributed cache like Redis
-    private final ConcurrentHashMap<String, String> sessionIdToEmployeeIdMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SessionEntry> sessionIdToEmployeeIdMap = new ConcurrentHashMap<>();
+
+    // Hashed timing wheel: each slot holds the entries due to expire in that tick. Reads only bump
+    // lastAccessTime; the sweeper re-slots entries that were touched since they were scheduled, so
+    // every entry is visited about once per timeout and the map itself is never scanned.
+    private final Queue<SessionEntry>[] wheel;
+    private final long tickMillis;
+    private volatile long lastSweptTick;
+    // Sweeping and LRU eviction both drain wheel slots. ReentrantLock rather than synchronized so
+    // virtual threads blocked here don't pin their carrier.
+    private final ReentrantLock wheelLock = new ReentrantLock();
+
+    private final ScheduledExecutorService scheduler;
+    private final long sessionTimeoutMillis; // Sessions expire after this much inactivity
+    private final int maxSessions;
+    private final LongSupplier clock;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public SessionIdEmployeeIdMappingService(
+            @Value("${session.mapping.timeout-minutes:60}") long sessionTimeoutMinutes,
+            @Value("${session.mapping.max-entries:100000}") int maxSessions,
+            @Value("${session.mapping.wheel-slots:60}") int wheelSlots,
+            ApplicationEventPublisher eventPublisher
+    ) {
+        this(TimeUnit.MINUTES.toMillis(sessionTimeoutMinutes), maxSessions, wheelSlots, System::currentTimeMillis, true,
+                eventPublisher);
+    }
+
+    SessionIdEmployeeIdMappingService(long sessionTimeoutMillis, int maxSessions, int wheelSlots,
+                                      LongSupplier clock, boolean scheduleCleanup) {
+        this(sessionTimeoutMillis, maxSessions, wheelSlots, clock, scheduleCleanup, event -> { });
+    }
+
+    SessionIdEmployeeIdMappingService(long sessionTimeoutMillis, int maxSessions, int wheelSlots,
+                                      LongSupplier clock, boolean scheduleCleanup,
+                                      ApplicationEventPublisher eventPublisher) {
+        if (sessionTimeoutMillis <= 0 || maxSessions <= 0 || wheelSlots <= 0) {
+            throw new IllegalArgumentException("Session timeout, max entries and wheel slots must be positive");
+        }
+        this.sessionTimeoutMillis = sessionTimeoutMillis;
+        this.maxSessions = maxSessions;
+        this.clock = clock;
+        this.eventPublisher = eventPublisher;
+        this.tickMillis = Math.max(1, sessionTimeoutMillis / wheelSlots);
 
-    // Optional: A cleanup scheduler to prevent memory leaks for expired sessions
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-    private final long SESSION_TIMEOUT_MINUTES = 60; // Sessions expire after 60 minutes of inactivity
+        // Two spare slots so the slot being filled never wraps onto the one being swept
+        @SuppressWarnings("unchecked")
+        Queue<SessionEntry>[] slots = new Queue[(int) (sessionTimeoutMillis / tickMillis) + 2];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.wheel = slots;
+        this.lastSweptTick = tickOf(clock.getAsLong()) - 1;
 
-    public SessionIdEmployeeIdMappingService() {
-        // Schedule cleanup task to run periodically
-        scheduler.scheduleAtFixedRate(this::cleanupExpiredSessions, 10, 30, TimeUnit.MINUTES);
+        if (scheduleCleanup) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "session-mapping-cleanup");
+                t.setDaemon(true);
+                return t;
+            });
+            // Schedule cleanup task to run once per wheel tick
+            scheduler.scheduleAtFixedRate(this::cleanupExpiredSessions, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
     }
 
     public void saveMapping(String sessionId, String employeeId) {
-        sessionIdToEmployeeIdMap.put(sessionId, employeeId);
+        long now = clock.getAsLong();
+        SessionEntry existing = sessionIdToEmployeeIdMap.get(sessionId);
+        if (existing != null && existing.employeeId.equals(employeeId) && !isExpired(existing, now)) {
+            // Every chat turn re-saves the mapping; treat it as a touch instead of a new entry
+            existing.lastAccessTime = now;
+        } else {
+            SessionEntry entry = new SessionEntry(sessionId, employeeId, now);
+            sessionIdToEmployeeIdMap.put(sessionId, entry);
+            schedule(entry);
+            if (sessionIdToEmployeeIdMap.size() > maxSessions) {
+                evictLeastRecentlyUsed();
+            }
+            // Listeners (e.g. the Yii2 prefetcher) run synchronously here and must only hand off work
+            eventPublisher.publishEvent(new EmployeeSessionStartedEvent(sessionId, employeeId));
+        }
         logger.debug("Mapping saved: {} -> {}", sessionId, employeeId);
     }
 
     public String getEmployeeId(String sessionId) {
-        String employeeId = sessionIdToEmployeeIdMap.get(sessionId);
+        SessionEntry entry = sessionIdToEmployeeIdMap.get(sessionId);
+        long now = clock.getAsLong();
+        String employeeId = null;
+        if (entry != null && isExpired(entry, now)) {
+            // Expired but not yet swept; drop it now rather than serve a stale mapping
+            if (sessionIdToEmployeeIdMap.remove(sessionId, entry)) {
+                expirations.increment();
+            }
+        } else if (entry != null) {
+            entry.lastAccessTime = now;
+            employeeId = entry.employeeId;
+        }
+        if (employeeId != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
         logger.debug("Mapping retrieved: {} -> {}", sessionId, employeeId);
         return employeeId;
     }
 
-    // This cleanup method is highly simplified and assumes you're tracking last activity
-    // For a real system with ConcurrentHashMap, you'd need to store last-access-time
-    // within a custom value object. With Redis, TTL (Time To Live) handles this naturally.
-    private void cleanupExpiredSessions() {
-        // This is a placeholder. A robust cleanup would involve tracking the last access time
-        // for each session and removing entries older than SESSION_TIMEOUT_MINUTES.
-        // For ConcurrentHashMap, you'd need to store a custom object like:
-        // class SessionInfo { String employeeId; long lastAccessTime; }
-        // For Redis, you'd use EXPIRE commands.
-        logger.info("Cleaning up expired sessions (placeholder - no actual cleanup for ConcurrentHashMap without last-access tracking)");
-        // Example if using a more complex map value with timestamp:
-        // sessionIdToEmployeeIdMap.entrySet().removeIf(entry ->
-        //     System.currentTimeMillis() - entry.getValue().lastAccessTime > TimeUnit.MINUTES.toMillis(SESSION_TIMEOUT_MINUTES)
-        // );
+    public int size() {
+        return sessionIdToEmployeeIdMap.size();
+    }
+
+    public SessionStats getStats() {
+        return new SessionStats(sessionIdToEmployeeIdMap.size(), maxSessions,
+                hits.sum(), misses.sum(), expirations.sum(), evictions.sum());
+    }
+
+    // Advances the wheel up to the current tick, expiring entries whose timeout has passed and
+    // re-slotting the ones that were touched since they were scheduled.
+    void cleanupExpiredSessions() {
+        wheelLock.lock();
+        try {
+            long now = clock.getAsLong();
+            long currentTick = tickOf(now);
+            long expiredBefore = expirations.sum();
+            while (lastSweptTick < currentTick) {
+                long tick = ++lastSweptTick;
+                Queue<SessionEntry> slot = wheel[slotIndex(tick)];
+                SessionEntry entry;
+                int pending = slot.size();
+                // Bounded by the slot's size on entry so re-slotted entries aren't seen twice
+                while (pending-- > 0 && (entry = slot.poll()) != null) {
+                    if (sessionIdToEmployeeIdMap.get(entry.sessionId) != entry) {
+                        continue; // replaced or already removed
+                    }
+                    if (isExpired(entry, now)) {
+                        if (sessionIdToEmployeeIdMap.remove(entry.sessionId, entry)) {
+                            expirations.increment();
+                        }
+                    } else {
+                        schedule(entry);
+                    }
+                }
+            }
+            long expired = expirations.sum() - expiredBefore;
+            if (expired > 0) {
+                logger.info("Expired {} idle sessions, {} active", expired, sessionIdToEmployeeIdMap.size());
+            }
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled cleanup
+            logger.error("Session cleanup failed", e);
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    // Walks the wheel from the slot due next; entries there have gone longest without access.
+    // Eviction is therefore LRU to within one tick (looser only while the sweeper is lagging).
+    private void evictLeastRecentlyUsed() {
+        wheelLock.lock();
+        try {
+            long tick = lastSweptTick;
+            long lastTick = Math.max(lastSweptTick, tickOf(clock.getAsLong()) - 1) + wheel.length;
+            while (sessionIdToEmployeeIdMap.size() > maxSessions && ++tick <= lastTick) {
+                Queue<SessionEntry> slot = wheel[slotIndex(tick)];
+                SessionEntry entry;
+                int pending = slot.size();
+                while (sessionIdToEmployeeIdMap.size() > maxSessions && pending-- > 0 && (entry = slot.poll()) != null) {
+                    if (sessionIdToEmployeeIdMap.get(entry.sessionId) != entry) {
+                        continue;
+                    }
+                    if (slotIndex(tickOf(entry.lastAccessTime + sessionTimeoutMillis)) != slotIndex(tick)) {
+                        schedule(entry); // touched since it was slotted, not a candidate yet
+                    } else if (sessionIdToEmployeeIdMap.remove(entry.sessionId, entry)) {
+                        evictions.increment();
+                    }
+                }
+            }
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    private void schedule(SessionEntry entry) {
+        long expiryTick = Math.max(tickOf(entry.lastAccessTime + sessionTimeoutMillis), lastSweptTick + 1);
+        wheel[slotIndex(expiryTick)].add(entry);
+    }
+
+    private boolean isExpired(SessionEntry entry, long now) {
+        return now - entry.lastAccessTime >= sessionTimeoutMillis;
+    }
+
+    private long tickOf(long timeMillis) {
+        return timeMillis / tickMillis;
+    }
+
+    private int slotIndex(long tick) {
+        return (int) Math.floorMod(tick, (long) wheel.length);
     }
 
     @PreDestroy
     public void shutdown() {
-        scheduler.shutdown();
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
         logger.info("Session cleanup scheduler shut down.");
     }
-}
\ No newline at end of file
+
+    private static final class SessionEntry {
+        final String sessionId;
+        final String employeeId;
+        volatile long lastAccessTime;
+
+        SessionEntry(String sessionId, String employeeId, long lastAccessTime) {
+            this.sessionId = sessionId;
+            this.employeeId = employeeId;
+            this.lastAccessTime = lastAccessTime;
+        }
+    }
+
+    public record SessionStats(int size, int maxSize, long hits, long misses, long expirations, long evictions) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.dialogflow.service;
+
+import com.example.dialogflow.dto.WebhookRequest;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+// Single-pass reader for Dialogflow webhook requests. Pulls session, queryResult.intent.displayName,
+// queryResult.queryText and queryResult.parameters straight off the token stream and skips everything
+// else (outputContexts, fulfillmentMessages, originalDetectIntentRequest, ...) without building it.
+// Scalar parameters keep their text value; the occasional composite one (date-period, unit-currency)
+// is kept as its compact JSON.
+@Component
+public class WebhookRequestReader {
+
+    private final JsonFactory jsonFactory;
+
+    public WebhookRequestReader(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public WebhookRequest read(byte[] body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return read(parser);
+        }
+    }
+
+    public WebhookRequest read(InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return read(parser);
+        }
+    }
+
+    private WebhookRequest read(JsonParser parser) throws IOException {
+        expectObjectStart(parser);
+        String session = "";
+        String intentName = "";
+        String queryText = "";
+        Map<String, String> parameters = Map.of();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("session".equals(field) && value == JsonToken.VALUE_STRING) {
+                session = parser.getText();
+            } else if ("queryResult".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String resultField = parser.currentName();
+                    JsonToken resultValue = parser.nextToken();
+                    if ("queryText".equals(resultField) && resultValue == JsonToken.VALUE_STRING) {
+                        queryText = parser.getText();
+                    } else if ("intent".equals(resultField) && resultValue == JsonToken.START_OBJECT) {
+                        intentName = readDisplayName(parser);
+                    } else if ("parameters".equals(resultField) && resultValue == JsonToken.START_OBJECT) {
+                        parameters = readParameters(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new WebhookRequest(session, intentName, queryText, parameters);
+    }
+
+    private static String readDisplayName(JsonParser parser) throws IOException {
+        String displayName = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("displayName".equals(field) && value == JsonToken.VALUE_STRING) {
+                displayName = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return displayName;
+    }
+
+    private Map<String, String> readParameters(JsonParser parser) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                parameters.put(name, copyStructure(parser));
+            } else if (value != JsonToken.VALUE_NULL) {
+                parameters.put(name, parser.getText());
+            }
+        }
+        return parameters;
+    }
+
+    private String copyStructure(JsonParser parser) throws IOException {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = jsonFactory.createGenerator(json)) {
+            generator.copyCurrentStructure(parser);
+        }
+        return json.toString();
+    }
+
+    private static void expectObjectStart(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Webhook request must be a JSON object");
+        }
+    }
+}
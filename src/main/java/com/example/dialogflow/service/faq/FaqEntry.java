@@ -0,0 +1,7 @@
+package com.example.dialogflow.service.faq;
+
+import java.util.List;
+
+// One canned HR answer and the question phrasings that should trigger it
+public record FaqEntry(String id, List<String> questions, String answer) {
+}
@@ -0,0 +1,97 @@
+package com.example.dialogflow.service.faq;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Immutable token trie over the normalized FAQ phrasings. A message is normalized the same way
+// (lower case, punctuation stripped, filler words dropped) and every phrase occurring in it is found
+// by walking the trie from each token. Confidence is the share of the message's tokens covered by the
+// best phrase, so "what are the office hours?" matches "office hours" fully, while "can I change
+// office hours for my team" only half-matches and is left to Dialogflow.
+public final class FaqMatcher {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> FILLER_WORDS = Set.of(
+            "a", "an", "the", "is", "are", "am", "was", "what", "whats", "when", "where", "how", "which",
+            "do", "does", "did", "can", "could", "would", "should", "i", "we", "you", "to", "of", "for",
+            "in", "on", "at", "my", "our", "me", "please", "hi", "hello", "hey", "tell", "about", "there");
+
+    private final Node root = new Node();
+    private final int size;
+
+    public FaqMatcher(List<FaqEntry> entries) {
+        int phrases = 0;
+        for (FaqEntry entry : entries) {
+            for (String question : entry.questions()) {
+                List<String> tokens = tokenize(question);
+                if (tokens.isEmpty()) {
+                    continue;
+                }
+                Node node = root;
+                for (String token : tokens) {
+                    node = node.children.computeIfAbsent(token, t -> new Node());
+                }
+                node.entry = entry;
+                node.length = tokens.size();
+                phrases++;
+            }
+        }
+        this.size = phrases;
+    }
+
+    public static FaqMatcher empty() {
+        return new FaqMatcher(List.of());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Best-covering FAQ for the message, or null when no phrase occurs in it
+    public Match match(String message) {
+        List<String> tokens = tokenize(message);
+        if (tokens.isEmpty() || size == 0) {
+            return null;
+        }
+        FaqEntry best = null;
+        int bestLength = 0;
+        for (int start = 0; start < tokens.size(); start++) {
+            Node node = root;
+            for (int i = start; i < tokens.size(); i++) {
+                node = node.children.get(tokens.get(i));
+                if (node == null) {
+                    break;
+                }
+                if (node.entry != null && node.length > bestLength) {
+                    best = node.entry;
+                    bestLength = node.length;
+                }
+            }
+        }
+        return best == null ? null : new Match(best, (double) bestLength / tokens.size());
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(text.toLowerCase(Locale.ROOT).replace("'", ""))) {
+            if (!token.isEmpty() && !FILLER_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>(4);
+        FaqEntry entry;
+        int length;
+    }
+
+    public record Match(FaqEntry entry, double confidence) {
+    }
+}
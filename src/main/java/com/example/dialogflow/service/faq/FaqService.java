@@ -0,0 +1,99 @@
+package com.example.dialogflow.service.faq;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+// Local pre-classifier in front of Dialogflow for canned HR questions. The FAQ set is a JSON array of
+// {"id", "questions": [...], "answer"} read from faq.path (any Spring resource location, e.g.
+// classpath:faq.json or file:/etc/hr/faq.json). With no path configured every message goes to Dialogflow.
+// Reloading swaps in a freshly built matcher, so readers never see a half-built trie.
+@Slf4j
+@Service
+public class FaqService {
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+    private final String path;
+    private final double minConfidence;
+    private volatile FaqMatcher matcher = FaqMatcher.empty();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder lowConfidence = new LongAdder();
+
+    public FaqService(
+            ResourceLoader resourceLoader,
+            ObjectMapper objectMapper,
+            @Value("${faq.path:}") String path,
+            @Value("${faq.min-confidence:0.75}") double minConfidence
+    ) {
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+        this.path = path;
+        this.minConfidence = minConfidence;
+        if (!path.isEmpty()) {
+            try {
+                reload();
+            } catch (IOException e) {
+                // Start without the fast path rather than failing the app over a bad FAQ file
+                log.error("Could not load FAQ set from {}, all messages will go to Dialogflow", path, e);
+            }
+        }
+    }
+
+    // Canned answer for a confidently matched FAQ, or null to fall through to Dialogflow
+    public String answer(String message) {
+        if (message == null) {
+            return null;
+        }
+        FaqMatcher.Match match = matcher.match(message);
+        if (match == null) {
+            misses.increment();
+            return null;
+        }
+        if (match.confidence() < minConfidence) {
+            lowConfidence.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        log.debug("FAQ {} answered locally with confidence {}", match.entry().id(), match.confidence());
+        return match.entry().answer();
+    }
+
+    // Returns the number of phrasings loaded
+    public int reload() throws IOException {
+        if (path.isEmpty()) {
+            throw new IllegalStateException("faq.path is not configured");
+        }
+        Resource resource = resourceLoader.getResource(path);
+        List<FaqEntry> entries;
+        try (InputStream in = resource.getInputStream()) {
+            entries = objectMapper.readValue(in, new TypeReference<List<FaqEntry>>() {});
+        }
+        FaqMatcher loaded = new FaqMatcher(entries);
+        matcher = loaded;
+        log.info("Loaded {} FAQs ({} phrasings) from {}", entries.size(), loaded.size(), path);
+        return loaded.size();
+    }
+
+    public FaqStats getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        double hitRatio = hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount);
+        return new FaqStats(matcher.size(), minConfidence, hitCount, missCount, lowConfidence.sum(), hitRatio);
+    }
+
+    public record FaqStats(int phrasings, double minConfidence, long hits, long misses, long lowConfidence, double hitRatio) {
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.dialogflow.service.intent;
+
+import com.example.dialogflow.service.DeepseekService;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+@Component
+public class AskDeepSeekIntentHandler implements IntentHandler {
+
+    // Questions about the asker themselves ("my payslip", "I earn 50000") must not be answered from
+    // the shared completion cache
+    private static final Pattern PERSONAL_PROMPT = Pattern.compile("\\b(my|mine|me|myself|i'm|i am)\\b|\\d{3,}",
+            Pattern.CASE_INSENSITIVE);
+
+    private final DeepseekService deepseekService;
+
+    public AskDeepSeekIntentHandler(DeepseekService deepseekService) {
+        this.deepseekService = deepseekService;
+    }
+
+    @Override
+    public String intentName() {
+        return "AskDeepSeek";
+    }
+
+    @Override
+    public Duration latencyBudget() {
+        return Duration.ofSeconds(4); // LLM completions are slow; Dialogflow gives up at 5s
+    }
+
+    @Override
+    public String handle(IntentRequest request) {
+        String question = request.queryText();
+        return deepseekService.getCompletion(question, !PERSONAL_PROMPT.matcher(question).find());
+    }
+}
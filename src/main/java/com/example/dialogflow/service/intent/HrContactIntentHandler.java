@@ -0,0 +1,70 @@
+package com.example.dialogflow.service.intent;
+
+import com.example.dialogflow.service.yii2.Yii2Client;
+import com.example.dialogflow.service.yii2.Yii2Endpoint;
+import com.example.dialogflow.utils.Deadline;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Slf4j
+@Component
+public class HrContactIntentHandler implements IntentHandler {
+
+    private final Yii2Client yii2Client;
+
+    public HrContactIntentHandler(Yii2Client yii2Client) {
+        this.yii2Client = yii2Client;
+    }
+
+    @Override
+    public String intentName() {
+        return "HR_Contact_Information";
+    }
+
+    @Override
+    public List<String> requiredParameters() {
+        return List.of("department");
+    }
+
+    @Override
+    public String missingParametersPrompt() {
+        return "Which HR department's contact information are you looking for? (e.g., Benefits, Payroll, Recruitment, or General HR)";
+    }
+
+    @Override
+    public boolean cacheable() {
+        return true;
+    }
+
+    @Override
+    public String handle(IntentRequest request) {
+        return fetchHRContactInfoFromYii2(request.parameter("department"), request.deadline()); // This might not need employeeId
+    }
+
+    private String fetchHRContactInfoFromYii2(String department, Deadline deadline) {
+        // This might be general info, not needing employeeId
+        try {
+            JsonNode body = yii2Client.get(Yii2Endpoint.HR_CONTACTS, null, department, deadline, cacheable());
+
+            if (body != null) {
+                JsonNode dataNode = body.path("data");
+                if (dataNode.isObject()) {
+                    String contactName = dataNode.path("name").asText();
+                    String contactEmail = dataNode.path("email").asText();
+                    if (!contactName.isEmpty() && !contactEmail.isEmpty()) {
+                        return "For " + department + ", contact " + contactName + " at " + contactEmail + ".";
+                    }
+                }
+                return "Could not find specific contact details for " + department + " department. Please check the HR portal.";
+            } else {
+                return "Sorry, I couldn't retrieve contact information at this time. Please try again later.";
+            }
+        } catch (Exception e) {
+            log.error("Error calling Yii2 API for HR contact info: {}", e.getMessage(), e);
+            return "An error occurred while fetching contact details. Please try again.";
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.dialogflow.service.intent;
+
+import java.time.Duration;
+import java.util.List;
+
+// Fulfils one Dialogflow intent for the webhook. Implementations are Spring beans and are picked up
+// by IntentHandlerRegistry, keyed by intentName(), so a new intent only needs a new handler class.
+public interface IntentHandler {
+
+    // Dialogflow intent display name this handler fulfils
+    String intentName();
+
+    // Parameters that must be present and non-empty before handle() is called
+    default List<String> requiredParameters() {
+        return List.of();
+    }
+
+    // Reply used when one of the required parameters is missing
+    default String missingParametersPrompt() {
+        return "Could you give me a bit more detail?";
+    }
+
+    // Whether this handler's Yii2 reads may be answered from Yii2ResponseCache; when false every read
+    // goes to Yii2. LLM handlers decide completion caching per prompt instead (see AskDeepSeekIntentHandler).
+    default boolean cacheable() {
+        return false;
+    }
+
+    // Expected worst-case handling time; slower calls are logged and counted by the registry
+    default Duration latencyBudget() {
+        return Duration.ofSeconds(2);
+    }
+
+    String handle(IntentRequest request);
+}
@@ -0,0 +1,114 @@
+package com.example.dialogflow.service.intent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Dispatch table from intent display name to handler, built once at startup from every IntentHandler
+// bean. Also keeps per-intent timing so slow intents show up without digging through logs.
+@Slf4j
+@Component
+public class IntentHandlerRegistry {
+
+    static final String UNHANDLED_INTENT_REPLY = "Sorry, I'm unable to process that request at the moment. Please try asking in a different way or contact HR directly.";
+
+    private final Map<String, IntentHandler> handlers;
+    private final Map<String, IntentTimings> timings;
+
+    public IntentHandlerRegistry(List<IntentHandler> intentHandlers) {
+        Map<String, IntentHandler> byName = new HashMap<>();
+        Map<String, IntentTimings> timingsByName = new HashMap<>();
+        for (IntentHandler handler : intentHandlers) {
+            IntentHandler previous = byName.putIfAbsent(handler.intentName(), handler);
+            if (previous != null) {
+                throw new IllegalStateException("Intent " + handler.intentName() + " is handled by both "
+                        + previous.getClass().getSimpleName() + " and " + handler.getClass().getSimpleName());
+            }
+            timingsByName.put(handler.intentName(), new IntentTimings());
+        }
+        this.handlers = Collections.unmodifiableMap(byName);
+        this.timings = Collections.unmodifiableMap(timingsByName);
+        log.info("Registered webhook intent handlers: {}", handlers.keySet());
+    }
+
+    public String dispatch(IntentRequest request) {
+        IntentHandler handler = handlers.get(request.intentName());
+        if (handler == null) {
+            log.warn("Unhandled intent in webhook: {}", request.intentName());
+            return UNHANDLED_INTENT_REPLY;
+        }
+
+        for (String parameter : handler.requiredParameters()) {
+            if (!request.hasParameter(parameter)) {
+                return handler.missingParametersPrompt();
+            }
+        }
+
+        IntentTimings intentTimings = timings.get(handler.intentName());
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            String reply = handler.handle(request);
+            failed = false;
+            return reply;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            intentTimings.record(elapsed, failed, handler.latencyBudget());
+            if (elapsed > handler.latencyBudget().toNanos()) {
+                log.warn("Intent {} took {} ms, over its {} ms budget", handler.intentName(),
+                        elapsed / 1_000_000, handler.latencyBudget().toMillis());
+            }
+        }
+    }
+
+    public IntentHandler getHandler(String intentName) {
+        return handlers.get(intentName);
+    }
+
+    public List<IntentStats> getStats() {
+        List<IntentStats> stats = new ArrayList<>();
+        handlers.forEach((name, handler) -> stats.add(timings.get(name).snapshot(handler)));
+        stats.sort((a, b) -> Double.compare(b.meanMillis(), a.meanMillis()));
+        return stats;
+    }
+
+    private static final class IntentTimings {
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder overBudget = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos, boolean failed, Duration budget) {
+            calls.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            if (failed) {
+                failures.increment();
+            }
+            if (nanos > budget.toNanos()) {
+                overBudget.increment();
+            }
+        }
+
+        IntentStats snapshot(IntentHandler handler) {
+            long count = calls.sum();
+            double mean = count == 0 ? 0 : totalNanos.sum() / (double) count / 1_000_000;
+            return new IntentStats(handler.intentName(), handler.requiredParameters(), handler.cacheable(),
+                    handler.latencyBudget().toMillis(), count, failures.sum(), overBudget.sum(),
+                    mean, maxNanos.get() / 1_000_000.0);
+        }
+    }
+
+    public record IntentStats(String intent, List<String> requiredParameters, boolean cacheable, long budgetMillis,
+                              long calls, long failures, long overBudget, double meanMillis, double maxMillis) {
+    }
+}
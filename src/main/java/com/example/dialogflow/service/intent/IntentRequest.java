@@ -0,0 +1,30 @@
+package com.example.dialogflow.service.intent;
+
+import com.example.dialogflow.utils.Deadline;
+
+import java.util.Map;
+
+// deadline is when the caller (Dialogflow, for the webhook) stops waiting for the answer
+public record IntentRequest(
+        String intentName,
+        String sessionId,
+        String employeeId,
+        String queryText,
+        Map<String, String> parameters,
+        Deadline deadline
+) {
+
+    public IntentRequest(String intentName, String sessionId, String employeeId, String queryText,
+                         Map<String, String> parameters) {
+        this(intentName, sessionId, employeeId, queryText, parameters, Deadline.none());
+    }
+
+    public String parameter(String name) {
+        return parameters == null ? null : parameters.get(name);
+    }
+
+    public boolean hasParameter(String name) {
+        String value = parameter(name);
+        return value != null && !value.isEmpty();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.dialogflow.service.intent;
+
+import com.example.dialogflow.service.resilience.DependencyUnavailableException;
+import com.example.dialogflow.service.yii2.Yii2Client;
+import com.example.dialogflow.service.yii2.Yii2Endpoint;
+import com.example.dialogflow.utils.Deadline;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.List;
+
+@Slf4j
+@Component
+public class LeavePolicyIntentHandler implements IntentHandler {
+
+    // Dialogflow parameter and leaveType entity values; Yii2Prefetcher warms the cache with these
+    public static final String LEAVE_TYPE = "leaveType";
+    public static final String ANNUAL = "annual";
+    public static final String SICK = "sick";
+
+    private final Yii2Client yii2Client;
+
+    public LeavePolicyIntentHandler(Yii2Client yii2Client) {
+        this.yii2Client = yii2Client;
+    }
+
+    @Override
+    public String intentName() {
+        return "LeavePolicyInquiry";
+    }
+
+    @Override
+    public List<String> requiredParameters() {
+        return List.of(LEAVE_TYPE);
+    }
+
+    @Override
+    public String missingParametersPrompt() {
+        return "Please specify which type of leave you'd like to know about (e.g., annual leave, sick leave).";
+    }
+
+    @Override
+    public boolean cacheable() {
+        return true;
+    }
+
+    @Override
+    public String handle(IntentRequest request) {
+        return fetchLeavePolicyFromYii2(request.employeeId(), request.parameter(LEAVE_TYPE), request.deadline());
+    }
+
+    private String fetchLeavePolicyFromYii2(String employeeId, String leaveType, Deadline deadline) {
+        try {
+            JsonNode body = yii2Client.get(Yii2Endpoint.LEAVE_BALANCES, employeeId, leaveType, deadline, cacheable());
+
+            if (body != null) {
+                // Example: Yii2 returns {"status":"success", "data":{"type":"annual", "balance":20}}
+                JsonNode dataNode = body.path("data");
+                if (dataNode.isObject()) {
+                    String type = dataNode.path("leavetype").asText();
+                    String balance = dataNode.path("balance").asText();
+                    if (!type.isEmpty() && !balance.isEmpty()) {
+                        return "Your " + type + " leave balance is " + balance + " days.";
+                    }
+                }
+                return "Could not find specific policy or balance details for " + leaveType + ". Please check the HR portal.";
+            } else {
+                return "Sorry, I couldn't retrieve your leave balance at this time. Please try again later.";
+            }
+        } catch (HttpClientErrorException | HttpServerErrorException e) {
+            log.error("HTTP error calling Yii2 API for leave policy ({}): {}", e.getStatusCode(), e.getResponseBodyAsString(), e);
+            return "There was an issue connecting to the policy system. Please try again or contact HR directly.";
+        } catch (DependencyUnavailableException e) {
+            log.warn("Skipping Yii2 call for leave policy: {}", e.getMessage());
+            return "I'm having trouble reaching the HR system. Please try again in a moment.";
+        } catch (ResourceAccessException e) {
+            log.error("Network error accessing Yii2 API for leave policy: {}", e.getMessage(), e);
+            return "I'm having trouble reaching the HR system. Please try again in a moment.";
+        } catch (Exception e) {
+            log.error("Unexpected error calling Yii2 API for leave policy: {}", e.getMessage(), e);
+            return "An unexpected error occurred while getting leave policy. Please try again.";
+        }
+    }
+}
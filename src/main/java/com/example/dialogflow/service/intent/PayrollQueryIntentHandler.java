@@ -0,0 +1,81 @@
+package com.example.dialogflow.service.intent;
+
+import com.example.dialogflow.service.yii2.Yii2Client;
+import com.example.dialogflow.service.yii2.Yii2Endpoint;
+import com.example.dialogflow.utils.Deadline;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Slf4j
+@Component
+public class PayrollQueryIntentHandler implements IntentHandler {
+
+    // Dialogflow parameter and payrollTopic entity values; Yii2Prefetcher warms the cache with these
+    public static final String PAYROLL_TOPIC = "payrollTopic";
+    public static final String PAY_DATES = "pay dates";
+    public static final String PAY_STUBS = "pay stubs";
+
+    private final Yii2Client yii2Client;
+
+    public PayrollQueryIntentHandler(Yii2Client yii2Client) {
+        this.yii2Client = yii2Client;
+    }
+
+    @Override
+    public String intentName() {
+        return "Payroll_Query";
+    }
+
+    @Override
+    public List<String> requiredParameters() {
+        return List.of(PAYROLL_TOPIC);
+    }
+
+    @Override
+    public String missingParametersPrompt() {
+        return "I can help with payroll questions. Are you asking about pay dates, how to access your pay stub, or something else?";
+    }
+
+    @Override
+    public boolean cacheable() {
+        return true;
+    }
+
+    @Override
+    public String handle(IntentRequest request) {
+        return fetchPayrollInfoFromYii2(request.employeeId(), request.parameter(PAYROLL_TOPIC), request.deadline());
+    }
+
+    private String fetchPayrollInfoFromYii2(String employeeId, String payrollTopic, Deadline deadline) {
+        try {
+            JsonNode body = yii2Client.get(Yii2Endpoint.PAYROLL, employeeId, payrollTopic, deadline, cacheable());
+
+            if (body != null) {
+                JsonNode dataNode = body.path("data");
+                if (dataNode.isObject()) {
+                    if (PAY_DATES.equalsIgnoreCase(payrollTopic)) {
+                        String nextPayDate = dataNode.path("next_pay_date").asText();
+                        if (!nextPayDate.isEmpty()) {
+                            return "Your next pay date is " + nextPayDate + ".";
+                        }
+                    } else if (PAY_STUBS.equalsIgnoreCase(payrollTopic)) {
+                        String portalLink = dataNode.path("portal_link").asText();
+                        if (!portalLink.isEmpty()) {
+                            return "You can access your latest pay stub at: " + portalLink;
+                        }
+                    }
+                    // Add more logic for 'deductions' etc.
+                }
+                return "Could not find specific payroll information for " + payrollTopic + ". Please check the HR portal.";
+            } else {
+                return "Sorry, I couldn't retrieve payroll information at this time. Please try again later.";
+            }
+        } catch (Exception e) {
+            log.error("Error calling Yii2 API for payroll info: {}", e.getMessage(), e);
+            return "An error occurred while fetching payroll details. Please try again.";
+        }
+    }
+}
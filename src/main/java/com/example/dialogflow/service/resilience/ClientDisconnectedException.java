@@ -0,0 +1,10 @@
+package com.example.dialogflow.service.resilience;
+
+// Thrown by a streaming consumer when the client on the other end has gone away, to stop reading
+// the upstream response. It says nothing about the dependency, so breakers ignore it.
+public class ClientDisconnectedException extends RuntimeException {
+
+    public ClientDisconnectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.dialogflow.service.resilience;
+
+import lombok.Getter;
+
+// Downstream systems isolated behind their own circuit breaker and bulkhead. The defaults here can be
+// overridden per dependency with resilience.<key>.* properties; see DependencyGuards. Streamed LLM
+// completions have guards of their own, whose slow-call threshold is time to first token, so that
+// long answers and abandoned streams cannot open the breaker that blocking completions rely on.
+@Getter
+public enum Dependency {
+    YII2("yii2", 40, 5_000),
+    DIALOGFLOW("dialogflow", 100, 5_000),
+    OPENAI("openai", 20, 30_000),
+    DEEPSEEK("deepseek", 20, 30_000),
+    OPENAI_STREAM("openai-stream", 20, 10_000),
+    DEEPSEEK_STREAM("deepseek-stream", 20, 10_000);
+
+    private final String key;
+    private final int defaultMaxConcurrentCalls;
+    private final long defaultSlowCallMillis;
+
+    Dependency(String key, int defaultMaxConcurrentCalls, long defaultSlowCallMillis) {
+        this.key = key;
+        this.defaultMaxConcurrentCalls = defaultMaxConcurrentCalls;
+        this.defaultSlowCallMillis = defaultSlowCallMillis;
+    }
+}
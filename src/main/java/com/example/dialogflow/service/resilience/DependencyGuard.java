@@ -0,0 +1,147 @@
+package com.example.dialogflow.service.resilience;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Circuit breaker plus concurrency bulkhead for one dependency. The bulkhead is checked first, so a
+// call rejected for lack of permits never counts against the breaker.
+public class DependencyGuard {
+
+    private final Dependency dependency;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    DependencyGuard(Dependency dependency, CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        this.dependency = dependency;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+    }
+
+    public <T> T call(Supplier<T> call) {
+        try {
+            return Bulkhead.decorateSupplier(bulkhead, CircuitBreaker.decorateSupplier(circuitBreaker, call)).get();
+        } catch (CallNotPermittedException e) {
+            throw new DependencyUnavailableException(dependency, "circuit open", e);
+        } catch (BulkheadFullException e) {
+            throw new DependencyUnavailableException(dependency, "too many concurrent calls", e);
+        }
+    }
+
+    public void run(Runnable call) {
+        call(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    // For calls that are already asynchronous. Permits are held until the returned future completes,
+    // and the future is handed back as-is, so cancelling it still cancels the underlying call.
+    // A cancellation (e.g. the client went away) releases the breaker permission without counting.
+    public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> call) {
+        if (!bulkhead.tryAcquirePermission()) {
+            return CompletableFuture.failedFuture(new DependencyUnavailableException(dependency,
+                    "too many concurrent calls", BulkheadFullException.createBulkheadFullException(bulkhead)));
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.onComplete();
+            return CompletableFuture.failedFuture(new DependencyUnavailableException(dependency,
+                    "circuit open", CallNotPermittedException.createCallNotPermittedException(circuitBreaker)));
+        }
+
+        long start = circuitBreaker.getCurrentTimestamp();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            bulkhead.onComplete();
+            circuitBreaker.onError(circuitBreaker.getCurrentTimestamp() - start, circuitBreaker.getTimestampUnit(), e);
+            throw e;
+        }
+        future.whenComplete((result, e) -> {
+            bulkhead.onComplete();
+            long duration = circuitBreaker.getCurrentTimestamp() - start;
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause == null) {
+                circuitBreaker.onResult(duration, circuitBreaker.getTimestampUnit(), result);
+            } else if (cause instanceof CancellationException) {
+                circuitBreaker.releasePermission();
+            } else {
+                circuitBreaker.onError(duration, circuitBreaker.getTimestampUnit(), cause);
+            }
+        });
+        return future;
+    }
+
+    // For streamed responses. The guard covers the call only until it calls the Runnable it is given,
+    // when the first token arrives, or until it returns or throws before that: the breaker records
+    // time to first token, and the bulkhead permit is released as soon as the stream is flowing.
+    // Failures while the rest of the stream is read are the caller's to handle.
+    public <T> T callUntilFirstToken(Function<Runnable, T> call) {
+        if (!bulkhead.tryAcquirePermission()) {
+            throw new DependencyUnavailableException(dependency, "too many concurrent calls",
+                    BulkheadFullException.createBulkheadFullException(bulkhead));
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.onComplete();
+            throw new DependencyUnavailableException(dependency, "circuit open",
+                    CallNotPermittedException.createCallNotPermittedException(circuitBreaker));
+        }
+
+        long start = circuitBreaker.getCurrentTimestamp();
+        AtomicBoolean settled = new AtomicBoolean();
+        Runnable firstToken = () -> {
+            if (settled.compareAndSet(false, true)) {
+                bulkhead.onComplete();
+                circuitBreaker.onSuccess(circuitBreaker.getCurrentTimestamp() - start, circuitBreaker.getTimestampUnit());
+            }
+        };
+        try {
+            T result = call.apply(firstToken);
+            firstToken.run(); // answered without any tokens
+            return result;
+        } catch (RuntimeException e) {
+            if (settled.compareAndSet(false, true)) {
+                bulkhead.onComplete();
+                circuitBreaker.onError(circuitBreaker.getCurrentTimestamp() - start, circuitBreaker.getTimestampUnit(), e);
+            }
+            throw e;
+        }
+    }
+
+    public Dependency getDependency() {
+        return dependency;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public GuardStats getStats() {
+        CircuitBreaker.Metrics breaker = circuitBreaker.getMetrics();
+        Bulkhead.Metrics bulk = bulkhead.getMetrics();
+        return new GuardStats(dependency.getKey(), circuitBreaker.getState().name(),
+                breaker.getFailureRate(), breaker.getSlowCallRate(), breaker.getNumberOfBufferedCalls(),
+                breaker.getNumberOfFailedCalls(), breaker.getNumberOfSlowCalls(), breaker.getNumberOfNotPermittedCalls(),
+                bulk.getAvailableConcurrentCalls(), bulk.getMaxAllowedConcurrentCalls(),
+                circuitBreaker.getCircuitBreakerConfig().getSlowCallDurationThreshold().toMillis());
+    }
+
+    // failureRate and slowCallRate are -1 until the breaker has seen its minimum number of calls
+    public record GuardStats(String dependency, String state, float failureRate, float slowCallRate, int bufferedCalls,
+                             int failedCalls, int slowCalls, long notPermittedCalls,
+                             int availableConcurrentCalls, int maxConcurrentCalls, long slowCallMillis) {
+    }
+}
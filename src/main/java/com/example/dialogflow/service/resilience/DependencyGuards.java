@@ -0,0 +1,86 @@
+package com.example.dialogflow.service.resilience;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// One DependencyGuard per Dependency, configured in code from resilience.<key>.* properties:
+//   max-concurrent-calls      bulkhead size (default per dependency, see Dependency)
+//   max-wait-ms               how long a call may wait for a bulkhead permit (0: fail fast)
+//   failure-rate-threshold    % of failed calls in the window that opens the circuit (50)
+//   slow-call-ms              calls slower than this count as slow (default per dependency)
+//   slow-call-rate-threshold  % of slow calls that opens the circuit (80)
+//   sliding-window-size       calls the rates are computed over (20)
+//   minimum-calls             calls needed before the rates are evaluated (10)
+//   open-state-ms             how long the circuit stays open before half-open probing (30000)
+//   half-open-calls           probe calls allowed while half-open (3)
+// 4xx responses are the caller's problem, not the dependency's, and never trip a breaker; neither does
+// a streaming client that disconnects (ClientDisconnectedException).
+@Slf4j
+@Component
+public class DependencyGuards {
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    private final BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+    private final Map<Dependency, DependencyGuard> guards = new EnumMap<>(Dependency.class);
+
+    public DependencyGuards(Environment environment) {
+        for (Dependency dependency : Dependency.values()) {
+            String prefix = "resilience." + dependency.getKey() + ".";
+            CircuitBreakerConfig breakerConfig = CircuitBreakerConfig.custom()
+                    .failureRateThreshold(environment.getProperty(prefix + "failure-rate-threshold", Float.class, 50f))
+                    .slowCallDurationThreshold(Duration.ofMillis(environment.getProperty(prefix + "slow-call-ms",
+                            Long.class, dependency.getDefaultSlowCallMillis())))
+                    .slowCallRateThreshold(environment.getProperty(prefix + "slow-call-rate-threshold", Float.class, 80f))
+                    .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                    .slidingWindowSize(environment.getProperty(prefix + "sliding-window-size", Integer.class, 20))
+                    .minimumNumberOfCalls(environment.getProperty(prefix + "minimum-calls", Integer.class, 10))
+                    .waitDurationInOpenState(Duration.ofMillis(environment.getProperty(prefix + "open-state-ms", Long.class, 30_000L)))
+                    .permittedNumberOfCallsInHalfOpenState(environment.getProperty(prefix + "half-open-calls", Integer.class, 3))
+                    .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                    .ignoreExceptions(HttpClientErrorException.class, ClientDisconnectedException.class)
+                    .build();
+            BulkheadConfig bulkheadConfig = BulkheadConfig.custom()
+                    .maxConcurrentCalls(environment.getProperty(prefix + "max-concurrent-calls", Integer.class,
+                            dependency.getDefaultMaxConcurrentCalls()))
+                    .maxWaitDuration(Duration.ofMillis(environment.getProperty(prefix + "max-wait-ms", Long.class, 0L)))
+                    .build();
+
+            CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(dependency.getKey(), breakerConfig);
+            circuitBreaker.getEventPublisher().onStateTransition(event ->
+                    log.warn("Circuit for {} moved {}", dependency.getKey(), event.getStateTransition()));
+            guards.put(dependency, new DependencyGuard(dependency, circuitBreaker,
+                    bulkheadRegistry.bulkhead(dependency.getKey(), bulkheadConfig)));
+        }
+    }
+
+    public DependencyGuard get(Dependency dependency) {
+        return guards.get(dependency);
+    }
+
+    public List<DependencyGuard.GuardStats> getStats() {
+        List<DependencyGuard.GuardStats> stats = new ArrayList<>();
+        guards.values().forEach(guard -> stats.add(guard.getStats()));
+        return stats;
+    }
+
+    public CircuitBreakerRegistry getCircuitBreakerRegistry() {
+        return circuitBreakerRegistry;
+    }
+
+    public BulkheadRegistry getBulkheadRegistry() {
+        return bulkheadRegistry;
+    }
+}
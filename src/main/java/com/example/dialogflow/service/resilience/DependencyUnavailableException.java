@@ -0,0 +1,16 @@
+package com.example.dialogflow.service.resilience;
+
+import lombok.Getter;
+
+// Thrown instead of calling a dependency whose circuit is open or whose bulkhead is full. Callers
+// treat it like any other failure of that dependency and answer with their usual fallback message.
+@Getter
+public class DependencyUnavailableException extends RuntimeException {
+
+    private final Dependency dependency;
+
+    public DependencyUnavailableException(Dependency dependency, String reason, Throwable cause) {
+        super(dependency.getKey() + " unavailable: " + reason, cause);
+        this.dependency = dependency;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.dialogflow.service.trace;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Mutable trace of a single request, filled in as it moves through its stages and turned into a
+// TraceRecord at the end. Safe to update from several threads at once (a hedged Yii2 attempt, a
+// timeout racing the reply), and finished at most once: whichever caller records it first wins and
+// later records are ignored.
+//
+// Code deeper in the call (Yii2Client, the LLM services) reaches the trace through current() when
+// the request thread has bound it; with nothing bound the static helpers are no-ops. Work handed to
+// another thread (hedges, batched lookups) must capture current() first and carry the trace along.
+public final class RequestTrace {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private final String endpoint;
+    private final long startNanos = System.nanoTime();
+    private final long timestamp = System.currentTimeMillis();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+    private final Map<String, String> downstream = new LinkedHashMap<>();
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private volatile String sessionId;
+    private volatile String intent;
+    private volatile String outcome = "unknown";
+    private volatile String message;
+
+    public RequestTrace(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public RequestTrace sessionId(String sessionId) {
+        this.sessionId = sessionId;
+        return this;
+    }
+
+    public RequestTrace intent(String intent) {
+        this.intent = intent;
+        return this;
+    }
+
+    public RequestTrace outcome(String outcome) {
+        this.outcome = outcome;
+        return this;
+    }
+
+    public RequestTrace message(String message) {
+        this.message = message;
+        return this;
+    }
+
+    // Repeated stages (e.g. two Yii2 calls) add up
+    public RequestTrace stage(String name, long nanos) {
+        lock.lock();
+        try {
+            stageNanos.merge(name, nanos, Long::sum);
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    public RequestTrace downstream(String dependency, String status) {
+        lock.lock();
+        try {
+            downstream.put(dependency, status);
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    // Makes this trace current() on the calling thread until the scope is closed
+    public Scope bind() {
+        RequestTrace previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    public static void recordStage(String name, long nanos) {
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.stage(name, nanos);
+        }
+    }
+
+    public static void recordDownstream(String dependency, String status) {
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.downstream(dependency, status);
+        }
+    }
+
+    // Null if the trace was already finished
+    TraceRecord finish(int maxMessageChars) {
+        if (!finished.compareAndSet(false, true)) {
+            return null;
+        }
+        Map<String, Long> stageMillis = new LinkedHashMap<>();
+        Map<String, String> downstreamStatus;
+        lock.lock();
+        try {
+            stageNanos.forEach((name, nanos) -> stageMillis.put(name, TimeUnit.NANOSECONDS.toMillis(nanos)));
+            downstreamStatus = new LinkedHashMap<>(downstream);
+        } finally {
+            lock.unlock();
+        }
+        return new TraceRecord(timestamp, endpoint, sessionId, intent,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                Collections.unmodifiableMap(stageMillis), Collections.unmodifiableMap(downstreamStatus),
+                outcome, TraceBuffer.truncate(message, maxMessageChars));
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.dialogflow.service.trace;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Fixed-size ring of the most recent request traces. Writers claim a sequence number with one
+// getAndIncrement and store into slot (sequence & mask), overwriting the oldest trace; there are no
+// locks on the request path. Readers walk back from the newest sequence and skip any slot that a
+// writer has already lapped, so a query sees each trace at most once.
+@Component
+public class TraceBuffer {
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final int maxMessageChars;
+    private final double logSampleRate;
+
+    public TraceBuffer(
+            @Value("${trace.buffer.capacity:4096}") int capacity,
+            @Value("${trace.message.max-chars:200}") int maxMessageChars,
+            @Value("${trace.log.sample-rate:0.01}") double logSampleRate
+    ) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.maxMessageChars = maxMessageChars;
+        this.logSampleRate = logSampleRate;
+    }
+
+    // A trace is stored once; recording it again (e.g. a reply racing its timeout) is a no-op
+    public void record(RequestTrace trace) {
+        TraceRecord record = trace.finish(maxMessageChars);
+        if (record == null) {
+            return;
+        }
+        long sequence = nextSequence.getAndIncrement();
+        slots.set((int) (sequence & mask), new Slot(sequence, record));
+    }
+
+    // Newest first. Null filters match everything.
+    public List<TraceRecord> query(String sessionId, String intent, Long minLatencyMillis, int limit) {
+        List<TraceRecord> matches = new ArrayList<>();
+        long newest = nextSequence.get() - 1;
+        long oldest = Math.max(0, newest - mask);
+        for (long sequence = newest; sequence >= oldest && matches.size() < limit; sequence--) {
+            Slot slot = slots.get((int) (sequence & mask));
+            if (slot == null || slot.sequence != sequence) {
+                continue; // not written yet, or already overwritten by a newer trace
+            }
+            TraceRecord record = slot.record;
+            if ((sessionId == null || sessionId.equals(record.sessionId()))
+                    && (intent == null || intent.equals(record.intent()))
+                    && (minLatencyMillis == null || record.latencyMillis() >= minLatencyMillis)) {
+                matches.add(record);
+            }
+        }
+        return matches;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long recorded() {
+        return nextSequence.get();
+    }
+
+    // For request logging: whether this request's details should go to the INFO log
+    public boolean sampleLog() {
+        return logSampleRate >= 1.0 || (logSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < logSampleRate);
+    }
+
+    public String truncate(String text) {
+        return truncate(text, maxMessageChars);
+    }
+
+    static String truncate(String text, int maxChars) {
+        if (text == null || text.length() <= maxChars) {
+            return text;
+        }
+        return text.substring(0, maxChars) + "…";
+    }
+
+    private record Slot(long sequence, TraceRecord record) {
+    }
+}
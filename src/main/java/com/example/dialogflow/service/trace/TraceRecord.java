@@ -0,0 +1,18 @@
+package com.example.dialogflow.service.trace;
+
+import java.util.Map;
+
+// One finished /api/chat or /api/webhook request. stageMillis is in the order the stages ran;
+// downstream holds the last status seen from each dependency (e.g. "dialogflow" -> "OK", "yii2" -> "200").
+public record TraceRecord(
+        long timestamp,
+        String endpoint,
+        String sessionId,
+        String intent,
+        long latencyMillis,
+        Map<String, Long> stageMillis,
+        Map<String, String> downstream,
+        String outcome,
+        String message
+) {
+}
@@ -0,0 +1,10 @@
+package com.example.dialogflow.service.transcript;
+
+import java.time.Instant;
+
+// One exchange as it is stored: what the user (or Dialogflow, for webhooks) sent and what went back.
+// channel is "chat", "stream" (/api/chat/stream, reply is what was streamed before the end), "batch"
+// (one message of /api/chat/batch) or "webhook"; reply is null when the turn failed before producing one.
+public record TranscriptTurn(Instant at, String channel, String sessionId, String employeeId, String intent,
+                             String message, String reply, String outcome, long latencyMillis) {
+}
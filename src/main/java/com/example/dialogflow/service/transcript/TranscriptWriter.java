@@ -0,0 +1,212 @@
+package com.example.dialogflow.service.transcript;
+
+import com.example.dialogflow.model.repository.TranscriptRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Write-behind persistence of chat and webhook turns. submit() only puts the turn on a bounded
+// in-memory queue; a single writer thread takes turns off it and writes them to Postgres through
+// TranscriptRepository, one multi-row INSERT per batch. A batch is written as soon as it holds
+// transcripts.batch-size turns, or once its first turn has waited transcripts.flush-interval-ms.
+//
+// When the queue is full the caller waits up to transcripts.offer-timeout-ms for room (backpressure)
+// and the turn is dropped after that. The default of 0 drops at once, so a slow or unreachable
+// database never adds latency to a chat turn. Dropped turns and batches that failed to write are
+// counted, not retried. On shutdown the writer stops accepting turns and writes out what is queued.
+@Slf4j
+@Component
+public class TranscriptWriter {
+
+    // Queued by shutdown() to wake a writer that is waiting for turns; never written
+    private static final TranscriptTurn STOP = new TranscriptTurn(null, null, null, null, null, null, null, null, 0);
+
+    private final Sink sink;
+    private final Runnable prepare;
+    private final boolean enabled;
+    private final BlockingQueue<TranscriptTurn> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final long shutdownTimeoutMillis;
+    private final Thread writerThread;
+    private volatile boolean running;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder backpressured = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @Autowired
+    public TranscriptWriter(
+            TranscriptRepository repository,
+            @Value("${transcripts.enabled:true}") boolean enabled,
+            @Value("${transcripts.queue-capacity:10000}") int queueCapacity,
+            @Value("${transcripts.batch-size:200}") int batchSize,
+            @Value("${transcripts.flush-interval-ms:500}") long flushIntervalMillis,
+            @Value("${transcripts.offer-timeout-ms:0}") long offerTimeoutMillis,
+            @Value("${transcripts.shutdown-timeout-ms:10000}") long shutdownTimeoutMillis,
+            @Value("${transcripts.partitions.months-ahead:2}") int monthsAhead
+    ) {
+        this(repository::insert, () -> repository.ensureSchema(YearMonth.now(Clock.systemUTC()), monthsAhead),
+                enabled, queueCapacity, batchSize, flushIntervalMillis, offerTimeoutMillis, shutdownTimeoutMillis);
+    }
+
+    TranscriptWriter(Sink sink, Runnable prepare, boolean enabled, int queueCapacity, int batchSize,
+                     long flushIntervalMillis, long offerTimeoutMillis, long shutdownTimeoutMillis) {
+        this.sink = sink;
+        this.prepare = prepare;
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.running = enabled;
+        this.writerThread = new Thread(this::writeLoop, "transcript-writer");
+        this.writerThread.setDaemon(true);
+        if (enabled) {
+            writerThread.start();
+        }
+    }
+
+    // Returns false if the turn was dropped: the queue stayed full, or the writer is disabled or stopped
+    public boolean submit(TranscriptTurn turn) {
+        if (!running) {
+            if (enabled) {
+                shed.increment();
+            }
+            return false;
+        }
+        if (queue.offer(turn)) {
+            accepted.increment();
+            return true;
+        }
+        if (offerTimeoutMillis > 0) {
+            backpressured.increment();
+            try {
+                if (queue.offer(turn, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    accepted.increment();
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        shed.increment();
+        return false;
+    }
+
+    public TranscriptStats getStats() {
+        return new TranscriptStats(enabled, queue.size(), queue.size() + queue.remainingCapacity(), accepted.sum(),
+                backpressured.sum(), shed.sum(), written.sum(), batches.sum(), failed.sum());
+    }
+
+    private void writeLoop() {
+        try {
+            prepare.run();
+        } catch (RuntimeException e) {
+            // The repository creates the table and partitions before the first insert as well
+            log.warn("Could not prepare the transcript table at startup: {}", e.getMessage());
+        }
+
+        List<TranscriptTurn> batch = new ArrayList<>(batchSize);
+        boolean interrupted = false;
+        while (running && !interrupted) {
+            try {
+                fill(batch);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            flush(batch);
+        }
+        // Stopping: write whatever is still queued without waiting for more
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Waits up to the flush interval for a first turn, then takes more until the batch is full or
+    // that first turn has waited the flush interval
+    private void fill(List<TranscriptTurn> batch) throws InterruptedException {
+        TranscriptTurn first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        if (first == null || first == STOP) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (batch.size() < batchSize && running) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            TranscriptTurn next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null || next == STOP) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<TranscriptTurn> batch) {
+        batch.removeIf(turn -> turn == STOP);
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            sink.write(batch);
+            written.add(batch.size());
+            batches.increment();
+        } catch (RuntimeException e) {
+            failed.add(batch.size());
+            log.warn("Dropped {} transcript turns: {}", batch.size(), e.getMessage());
+        } finally {
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        queue.offer(STOP); // if the queue is full the writer isn't waiting anyway
+        try {
+            writerThread.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            log.warn("Transcript writer did not finish within {} ms; {} queued turns may be lost",
+                    shutdownTimeoutMillis, queue.size());
+        }
+    }
+
+    // TranscriptRepository.insert
+    @FunctionalInterface
+    interface Sink {
+        void write(List<TranscriptTurn> turns);
+    }
+
+    public record TranscriptStats(boolean enabled, int queued, int capacity, long accepted, long backpressured,
+                                  long shed, long written, long batches, long failed) {
+    }
+}
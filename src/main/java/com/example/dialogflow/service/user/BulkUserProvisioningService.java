@@ -0,0 +1,243 @@
+package com.example.dialogflow.service.user;
+
+import com.example.dialogflow.dto.AppUserRequest;
+import com.example.dialogflow.dto.BulkProvisioningReport;
+import com.example.dialogflow.dto.BulkProvisioningReport.Row;
+import com.example.dialogflow.dto.BulkProvisioningReport.Status;
+import com.example.dialogflow.model.repository.UserBatchRepository;
+import com.example.dialogflow.model.repository.UserBatchRepository.InsertOutcome;
+import com.example.dialogflow.model.repository.UserBatchRepository.NewUserRow;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Onboards a whole company from one NDJSON upload (one AppUserRequest per line). The body is read as
+// a stream and handled users.bulk.chunk-size rows at a time: each chunk's passwords are BCrypt-hashed
+// in parallel on a bounded pool (BCrypt is the slow part, ~100 ms a row on one core), then the chunk
+// goes to UserBatchRepository as one JDBC batch.
+//
+// A bad line or a taken email/username/phone only affects its own row. The report keeps running
+// counts and lists at most users.bulk.max-reported-rows of the rows that were not created, so memory
+// and response size stay bounded however large the upload.
+@Slf4j
+@Service
+public class BulkUserProvisioningService {
+
+    private final ChunkWriter writer;
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService hashPool;
+    private final int chunkSize;
+    private final int maxReportedRows;
+
+    @Autowired
+    public BulkUserProvisioningService(
+            UserBatchRepository userBatchRepository,
+            PasswordEncoder passwordEncoder,
+            ObjectMapper objectMapper,
+            @Value("${users.bulk.chunk-size:500}") int chunkSize,
+            @Value("${users.bulk.hash-threads:0}") int hashThreads,
+            @Value("${users.bulk.max-reported-rows:1000}") int maxReportedRows
+    ) {
+        this(userBatchRepository::insertIgnoringConflicts, passwordEncoder, objectMapper, chunkSize, maxReportedRows,
+                newHashPool(hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors(), chunkSize));
+    }
+
+    BulkUserProvisioningService(ChunkWriter writer, PasswordEncoder passwordEncoder, ObjectMapper objectMapper,
+                                int chunkSize, int maxReportedRows, ExecutorService hashPool) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.writer = writer;
+        this.passwordEncoder = passwordEncoder;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxReportedRows = maxReportedRows;
+        this.hashPool = hashPool;
+    }
+
+    public BulkProvisioningReport provision(InputStream ndjson) throws IOException {
+        long start = System.nanoTime();
+        Tally tally = new Tally(maxReportedRows);
+        List<PendingRow> chunk = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            AppUserRequest request;
+            try {
+                request = objectMapper.readValue(line, AppUserRequest.class);
+            } catch (JsonProcessingException e) {
+                tally.add(new Row(lineNumber, null, Status.INVALID, "Not a valid user: " + e.getOriginalMessage()));
+                continue;
+            }
+            String problem = validate(request);
+            if (problem != null) {
+                tally.add(new Row(lineNumber, request.getEmail(), Status.INVALID, problem));
+                continue;
+            }
+            chunk.add(new PendingRow(lineNumber, request));
+            if (chunk.size() == chunkSize) {
+                write(chunk, tally);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            write(chunk, tally);
+        }
+
+        BulkProvisioningReport report = tally.report((System.nanoTime() - start) / 1_000_000);
+        log.info("Bulk provisioning: {} rows, {} created, {} conflicts, {} invalid, {} failed in {} ms", report.total(),
+                report.created(), report.conflicts(), report.invalid(), report.failed(), report.elapsedMillis());
+        return report;
+    }
+
+    private void write(List<PendingRow> chunk, Tally tally) throws IOException {
+        List<NewUserRow> users = hashPasswords(chunk);
+        try {
+            List<InsertOutcome> outcomes = writer.write(users);
+            for (int i = 0; i < chunk.size(); i++) {
+                InsertOutcome outcome = outcomes.get(i);
+                PendingRow pending = chunk.get(i);
+                if (outcome.id() != null) {
+                    tally.created++;
+                } else {
+                    String taken = outcome.conflicts().isEmpty() ? "user" : String.join(", ", outcome.conflicts());
+                    tally.add(new Row(pending.line, pending.request.getEmail(), Status.CONFLICT, taken + " already taken"));
+                }
+            }
+        } catch (DataAccessException e) {
+            log.error("Bulk provisioning chunk of {} rows failed", chunk.size(), e);
+            chunk.forEach(pending -> tally.add(new Row(pending.line, pending.request.getEmail(), Status.FAILED,
+                    e.getMostSpecificCause().getMessage())));
+        }
+    }
+
+    private List<NewUserRow> hashPasswords(List<PendingRow> chunk) throws IOException {
+        List<Future<String>> hashes = new ArrayList<>(chunk.size());
+        for (PendingRow pending : chunk) {
+            String password = pending.request.getPassword();
+            hashes.add(hashPool.submit(() -> passwordEncoder.encode(password)));
+        }
+        List<NewUserRow> users = new ArrayList<>(chunk.size());
+        try {
+            for (int i = 0; i < chunk.size(); i++) {
+                AppUserRequest request = chunk.get(i).request;
+                users.add(new NewUserRow(request.getEmail().trim(), request.getName(), blankToNull(request.getUsername()),
+                        blankToNull(request.getPhone()), request.getLocation(), hashes.get(i).get()));
+            }
+        } catch (InterruptedException e) {
+            hashes.forEach(hash -> hash.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while hashing passwords", e);
+        } catch (ExecutionException e) {
+            hashes.forEach(hash -> hash.cancel(true));
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+        return users;
+    }
+
+    private static String validate(AppUserRequest request) {
+        if (isBlank(request.getEmail()) || isBlank(request.getPassword())
+                || isBlank(request.getName()) || isBlank(request.getLocation())) {
+            return "email, password, name and location are required";
+        }
+        return request.getEmail().indexOf('@') < 1 ? "email is not valid" : null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static String blankToNull(String value) {
+        return isBlank(value) ? null : value.trim();
+    }
+
+    // Full queue runs the hash on the submitting request thread, which slows that upload down instead
+    // of rejecting it
+    private static ExecutorService newHashPool(int threads, int queueSize) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+            Thread t = new Thread(r, "user-bulk-hash-" + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashPool.shutdownNow();
+    }
+
+    private record PendingRow(int line, AppUserRequest request) {
+    }
+
+    // Running counts for one upload, plus the first problem rows
+    private static final class Tally {
+        private final int maxListed;
+        private final List<Row> problems = new ArrayList<>();
+        private int created;
+        private int conflicts;
+        private int invalid;
+        private int failed;
+        private int notListed;
+
+        private Tally(int maxListed) {
+            this.maxListed = maxListed;
+        }
+
+        private void add(Row row) {
+            switch (row.status()) {
+                case CONFLICT -> conflicts++;
+                case INVALID -> invalid++;
+                case FAILED -> failed++;
+                default -> throw new IllegalArgumentException("Not a problem row: " + row.status());
+            }
+            if (problems.size() < maxListed) {
+                problems.add(row);
+            } else {
+                notListed++;
+            }
+        }
+
+        // Invalid lines are reported as they are read and chunk rows when the chunk is written, so
+        // the listed rows are put back into input order here
+        private BulkProvisioningReport report(long elapsedMillis) {
+            problems.sort((a, b) -> Integer.compare(a.line(), b.line()));
+            return new BulkProvisioningReport(created + conflicts + invalid + failed, created, conflicts, invalid,
+                    failed, elapsedMillis, problems, notListed);
+        }
+    }
+
+    // UserBatchRepository.insertIgnoringConflicts
+    @FunctionalInterface
+    interface ChunkWriter {
+        List<InsertOutcome> write(List<NewUserRow> rows);
+    }
+}
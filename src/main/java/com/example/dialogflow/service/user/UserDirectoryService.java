@@ -0,0 +1,112 @@
+package com.example.dialogflow.service.user;
+
+import com.example.dialogflow.dto.Pagination;
+import com.example.dialogflow.dto.UserSummary;
+import com.example.dialogflow.model.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// User listing for large app_user tables: keyset pages on id (no OFFSET scan), the planner's row
+// estimate instead of COUNT(*), and an NDJSON export that writes rows as the JDBC cursor yields them.
+// Old page/pageSize clients still get offset pages, counted the cheap way.
+@Service
+public class UserDirectoryService {
+
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int maxPageSize;
+
+    public UserDirectoryService(
+            UserRepository userRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${users.list.max-page-size:500}") int maxPageSize
+    ) {
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxPageSize = maxPageSize;
+    }
+
+    // Rows with id > afterId; nextAfterId is null on the last page
+    public KeysetPage listAfter(int afterId, int pageSize) {
+        int size = clampPageSize(pageSize);
+        List<UserSummary> users = userRepository.findSummariesAfter(afterId, PageRequest.of(0, size));
+        Integer nextAfterId = users.size() == size ? users.get(users.size() - 1).id() : null;
+        return new KeysetPage(users, size, nextAfterId);
+    }
+
+    // 1-based offset page in the old shape; totalCount is the planner estimate, not an exact count
+    public OffsetPage listPage(int page, int pageSize) {
+        int size = clampPageSize(pageSize);
+        int pageNumber = Math.max(page, 1);
+        List<UserSummary> users = userRepository.findSummaries(PageRequest.of(pageNumber - 1, size));
+        long total = Math.max(approximateCount(), (long) (pageNumber - 1) * size + users.size());
+        Pagination pagination = new Pagination(pageNumber, size, (total + size - 1) / size, total);
+        Integer nextAfterId = users.isEmpty() ? null : users.get(users.size() - 1).id();
+        return new OffsetPage(users, pagination, nextAfterId);
+    }
+
+    // Falls back to COUNT(*) only when the table has never been analyzed
+    public long approximateCount() {
+        long estimate = userRepository.approximateCount();
+        return estimate >= 0 ? estimate : userRepository.count();
+    }
+
+    // Writes one JSON object per line for every user with id > afterId, holding one fetch-size batch of
+    // rows in memory at a time. Returns the number of rows written.
+    public long streamAfter(int afterId, OutputStream out) throws IOException {
+        try {
+            Long written = readOnlyTransaction.execute(status -> {
+                long rows = 0;
+                try (Stream<UserSummary> users = userRepository.streamSummariesAfter(afterId);
+                     SequenceWriter writer = objectMapper.writer()
+                             .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                             .withRootValueSeparator("\n")
+                             .writeValues(out)) {
+                    Iterator<UserSummary> iterator = users.iterator();
+                    while (iterator.hasNext()) {
+                        writer.write(iterator.next());
+                        rows++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return rows;
+            });
+            long rows = written == null ? 0 : written;
+            if (rows > 0) {
+                out.write('\n');
+            }
+            out.flush();
+            return rows;
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // usually the client went away
+        }
+    }
+
+    private int clampPageSize(int pageSize) {
+        return Math.min(Math.max(pageSize, 1), maxPageSize);
+    }
+
+    public record KeysetPage(List<UserSummary> users, int pageSize, Integer nextAfterId) {
+    }
+
+    public record OffsetPage(List<UserSummary> users, Pagination pagination, Integer nextAfterId) {
+    }
+}
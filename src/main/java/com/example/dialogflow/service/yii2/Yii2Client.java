@@ -0,0 +1,155 @@
+package com.example.dialogflow.service.yii2;
+
+import com.example.dialogflow.service.resilience.Dependency;
+import com.example.dialogflow.service.resilience.DependencyGuard;
+import com.example.dialogflow.service.resilience.DependencyGuards;
+import com.example.dialogflow.service.trace.RequestTrace;
+import com.example.dialogflow.utils.Deadline;
+import com.example.dialogflow.utils.SingleFlight;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+public class Yii2Client {
+
+    private final RestTemplate restTemplate;
+    private final Yii2ResponseCache responseCache;
+    private final String yii2ApiBaseUrl;
+    private final MeterRegistry meterRegistry;
+    private final DependencyGuard guard;
+    private final Yii2ReadPolicy readPolicy;
+    private final Yii2LeaveBalanceBatcher leaveBalanceBatcher;
+    // Identical requests already on the wire (payday spikes) share one upstream call
+    private final SingleFlight<URI, JsonNode> inFlightRequests = new SingleFlight<>();
+
+    public Yii2Client(
+            RestTemplate restTemplate,
+            Yii2ResponseCache responseCache,
+            @Value("${yii2.api.base-url}") String yii2ApiBaseUrl,
+            MeterRegistry meterRegistry,
+            DependencyGuards dependencyGuards,
+            Yii2ReadPolicy readPolicy,
+            Yii2LeaveBalanceBatcher leaveBalanceBatcher
+    ) {
+        this.restTemplate = restTemplate;
+        this.responseCache = responseCache;
+        this.yii2ApiBaseUrl = yii2ApiBaseUrl;
+        this.meterRegistry = meterRegistry;
+        this.guard = dependencyGuards.get(Dependency.YII2);
+        this.readPolicy = readPolicy;
+        this.leaveBalanceBatcher = leaveBalanceBatcher;
+    }
+
+    // Returns the response body for a successful call, or null if Yii2 answered with a non-2xx
+    // status. HTTP and network errors are thrown as the usual RestTemplate exceptions, and
+    // DependencyUnavailableException when the Yii2 circuit is open or its bulkhead is full.
+    public JsonNode get(Yii2Endpoint endpoint, String employeeId, String parameter) {
+        return get(endpoint, employeeId, parameter, Deadline.none());
+    }
+
+    // As above, but retries and hedges give up once the deadline has passed (see Yii2ReadPolicy)
+    public JsonNode get(Yii2Endpoint endpoint, String employeeId, String parameter, Deadline deadline) {
+        return get(endpoint, employeeId, parameter, deadline, true);
+    }
+
+    // cacheable=false bypasses Yii2ResponseCache, for handlers that must see Yii2's current answer
+    // (IntentHandler.cacheable()); identical calls already on the wire are still shared
+    public JsonNode get(Yii2Endpoint endpoint, String employeeId, String parameter, Deadline deadline,
+                        boolean cacheable) {
+        Yii2ResponseCache.Key key = cacheKey(endpoint, employeeId, parameter);
+        if (!cacheable) {
+            return fetch(endpoint, key.employeeId(), parameter, deadline);
+        }
+        return responseCache.get(key, deadline,
+                loadDeadline -> fetch(endpoint, key.employeeId(), parameter, loadDeadline));
+    }
+
+    public SingleFlight.Stats getCoalescingStats() {
+        return inFlightRequests.getStats();
+    }
+
+    static Yii2ResponseCache.Key cacheKey(Yii2Endpoint endpoint, String employeeId, String parameter) {
+        return new Yii2ResponseCache.Key(endpoint, endpoint.isEmployeeSpecific() ? employeeId : null, parameter);
+    }
+
+    URI buildUri(Yii2Endpoint endpoint, String employeeId, String parameter) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(yii2ApiBaseUrl + endpoint.getPath());
+        if (endpoint.isEmployeeSpecific()) {
+            builder.queryParam(endpoint.getEmployeeParam(), employeeId);
+        }
+        return builder.queryParam(endpoint.getParameterName(), parameter)
+                .build()
+                .toUri();
+    }
+
+    public Yii2ReadPolicy.PolicyStats getPolicyStats() {
+        return readPolicy.getStats();
+    }
+
+    public Yii2LeaveBalanceBatcher.BatchStats getBatchStats() {
+        return leaveBalanceBatcher.getStats();
+    }
+
+    // Each attempt, hedges included, goes through the circuit breaker on its own. Leave balance
+    // lookups may instead ride along in a batch with other employees' (see Yii2LeaveBalanceBatcher).
+    // Hedges and batches run on other threads, so the caller's trace is captured here and passed along.
+    private JsonNode fetch(Yii2Endpoint endpoint, String employeeId, String parameter, Deadline deadline) {
+        URI uri = buildUri(endpoint, employeeId, parameter);
+        RequestTrace trace = RequestTrace.current();
+        Supplier<JsonNode> singleCall =
+                () -> readPolicy.execute(endpoint, deadline, () -> guard.call(() -> call(endpoint, uri, trace)));
+        if (endpoint == Yii2Endpoint.LEAVE_BALANCES) {
+            return inFlightRequests.execute(uri,
+                    () -> leaveBalanceBatcher.lookup(employeeId, parameter, deadline, trace, singleCall));
+        }
+        return inFlightRequests.execute(uri, singleCall);
+    }
+
+    // Only calls that reach the wire are timed; cache hits and coalesced followers show up in their own stats
+    private JsonNode call(Yii2Endpoint endpoint, URI uri, RequestTrace trace) {
+        log.info("Calling Yii2 API for {}: {}", endpoint.getDescription(), uri);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            ResponseEntity<JsonNode> response = restTemplate.getForEntity(uri, JsonNode.class);
+            if (trace != null) {
+                trace.downstream("yii2", String.valueOf(response.getStatusCode().value()));
+            }
+
+            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+                outcome = "success";
+                return response.getBody();
+            }
+            outcome = "http_" + response.getStatusCode().value();
+            log.warn("Yii2 API call for {} failed with status: {}", endpoint.getDescription(), response.getStatusCode());
+            return null;
+        } catch (RuntimeException e) {
+            if (trace != null) {
+                trace.downstream("yii2", e.getClass().getSimpleName());
+            }
+            throw e;
+        } finally {
+            long nanos = sample.stop(Timer.builder("yii2.request")
+                    .description("Yii2 HRMS API call")
+                    .tag("endpoint", endpoint.name().toLowerCase(Locale.ROOT))
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            if (trace != null) {
+                trace.stage("yii2." + endpoint.name().toLowerCase(Locale.ROOT), nanos);
+            }
+        }
+    }
+}
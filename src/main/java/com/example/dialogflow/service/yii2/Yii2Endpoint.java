@@ -0,0 +1,28 @@
+package com.example.dialogflow.service.yii2;
+
+import lombok.Getter;
+
+// Read endpoints of the Yii2 HRMS API used by the webhook
+@Getter
+public enum Yii2Endpoint {
+
+    LEAVE_BALANCES("/leavebalances/index", "employee", "leavetype", "leave policy"),
+    PAYROLL("/payroll/apilist", "employee_id", "topic", "payroll info"),
+    HR_CONTACTS("/hr-contacts/apilist", null, "department", "HR contact info"); // Not employee specific
+
+    private final String path;
+    private final String employeeParam;
+    private final String parameterName;
+    private final String description;
+
+    Yii2Endpoint(String path, String employeeParam, String parameterName, String description) {
+        this.path = path;
+        this.employeeParam = employeeParam;
+        this.parameterName = parameterName;
+        this.description = description;
+    }
+
+    public boolean isEmployeeSpecific() {
+        return employeeParam != null;
+    }
+}
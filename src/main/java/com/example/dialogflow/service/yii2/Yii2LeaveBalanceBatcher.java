@@ -0,0 +1,325 @@
+package com.example.dialogflow.service.yii2;
+
+import com.example.dialogflow.service.resilience.Dependency;
+import com.example.dialogflow.service.resilience.DependencyGuard;
+import com.example.dialogflow.service.resilience.DependencyGuards;
+import com.example.dialogflow.service.resilience.DependencyUnavailableException;
+import com.example.dialogflow.service.trace.RequestTrace;
+import com.example.dialogflow.utils.Deadline;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Collects leave balance lookups for different employees that arrive within a few milliseconds of each
+// other (yii2.batch.window-ms, or until yii2.batch.max-size lookups are waiting) and sends them as one
+// call to Yii2's batch endpoint, one call per leave type:
+//
+//   GET {yii2.api.base-url}/leavebalances/batch?employees=E1,E2,E3&leavetype=annual
+//   -> {"E1": {...}, "E2": {...}, "E3": {...}}   each value shaped like the single-employee response
+//
+// A caller whose employee is missing from the answer, or whose batch failed, falls back to the normal
+// single call (with its retries). If the batch endpoint itself answers 404/405/501 batching is switched
+// off for yii2.batch.unavailable-retry-seconds, so a Yii2 without the endpoint costs one failed call.
+@Slf4j
+@Component
+public class Yii2LeaveBalanceBatcher {
+
+    private static final Set<Integer> UNAVAILABLE_STATUSES = Set.of(404, 405, 501);
+
+    private final RestTemplate restTemplate;
+    private final String batchUrl;
+    private final String employeesParam;
+    private final DependencyGuard guard;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService windowTimer;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final long unavailableRetryMillis;
+    private final LongSupplier clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private List<Lookup> pending = new ArrayList<>();
+    private ScheduledFuture<?> pendingFlush;
+    private volatile long unavailableUntil;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedLookups = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    @Autowired
+    public Yii2LeaveBalanceBatcher(
+            RestTemplate restTemplate,
+            @Value("${yii2.api.base-url}") String yii2ApiBaseUrl,
+            @Value("${yii2.batch.path:/leavebalances/batch}") String batchPath,
+            @Value("${yii2.batch.employees-param:employees}") String employeesParam,
+            DependencyGuards dependencyGuards,
+            MeterRegistry meterRegistry,
+            @Qualifier("outboundExecutor") ExecutorService outboundExecutor,
+            @Value("${yii2.batch.enabled:false}") boolean enabled,
+            @Value("${yii2.batch.window-ms:5}") long windowMillis,
+            @Value("${yii2.batch.max-size:50}") int maxBatchSize,
+            @Value("${yii2.batch.unavailable-retry-seconds:300}") long unavailableRetrySeconds
+    ) {
+        this(restTemplate, yii2ApiBaseUrl + batchPath, employeesParam, dependencyGuards.get(Dependency.YII2),
+                meterRegistry, outboundExecutor, enabled, windowMillis, maxBatchSize,
+                TimeUnit.SECONDS.toMillis(unavailableRetrySeconds), System::currentTimeMillis);
+    }
+
+    Yii2LeaveBalanceBatcher(RestTemplate restTemplate, String batchUrl, String employeesParam, DependencyGuard guard,
+                            MeterRegistry meterRegistry, ExecutorService executor, boolean enabled, long windowMillis,
+                            int maxBatchSize, long unavailableRetryMillis, LongSupplier clock) {
+        if (windowMillis <= 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch window and max size must be positive");
+        }
+        this.restTemplate = restTemplate;
+        this.batchUrl = batchUrl;
+        this.employeesParam = employeesParam;
+        this.guard = guard;
+        this.meterRegistry = meterRegistry;
+        this.executor = executor;
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.unavailableRetryMillis = unavailableRetryMillis;
+        this.clock = clock;
+        this.windowTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "yii2-batch-window");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Blocks until the batch containing this lookup answers, then returns the employee's entry. Uses
+    // the single call instead when batching is off or unavailable, or the batch could not answer for
+    // this employee. The batch call is recorded in the caller's trace, if any, since it is sent from
+    // another thread.
+    public JsonNode lookup(String employeeId, String leaveType, Deadline deadline, RequestTrace trace,
+                           Supplier<JsonNode> singleCall) {
+        if (!enabled || clock.getAsLong() < unavailableUntil) {
+            return singleCall.get();
+        }
+
+        CompletableFuture<JsonNode> result = enqueue(employeeId, leaveType, trace);
+        try {
+            return deadline.isBounded() ? result.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS) : result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FallBack) {
+                fallbacks.increment();
+                return singleCall.get();
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ResourceAccessException("Yii2 leave balance batch did not answer before the deadline");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted waiting for Yii2 leave balance batch");
+        }
+    }
+
+    public BatchStats getStats() {
+        long lookups = batchedLookups.sum();
+        long batchCount = batches.sum();
+        return new BatchStats(enabled, clock.getAsLong() >= unavailableUntil, batchCount, lookups,
+                batchCount == 0 ? 0 : (double) lookups / batchCount, fallbacks.sum());
+    }
+
+    private CompletableFuture<JsonNode> enqueue(String employeeId, String leaveType, RequestTrace trace) {
+        Lookup lookup = new Lookup(employeeId, leaveType, trace, new CompletableFuture<>());
+        List<Lookup> full = null;
+        lock.lock();
+        try {
+            pending.add(lookup);
+            if (pending.size() >= maxBatchSize) {
+                full = drain();
+            } else if (pending.size() == 1) {
+                pendingFlush = windowTimer.schedule(this::flushWindow, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return lookup.result;
+    }
+
+    private void flushWindow() {
+        List<Lookup> due;
+        lock.lock();
+        try {
+            due = pending.isEmpty() ? null : drain();
+        } finally {
+            lock.unlock();
+        }
+        if (due != null) {
+            dispatch(due);
+        }
+    }
+
+    // Caller holds the lock
+    private List<Lookup> drain() {
+        List<Lookup> drained = pending;
+        pending = new ArrayList<>();
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        return drained;
+    }
+
+    private void dispatch(List<Lookup> lookups) {
+        Map<String, Map<String, List<Lookup>>> byLeaveType = new LinkedHashMap<>();
+        for (Lookup lookup : lookups) {
+            byLeaveType.computeIfAbsent(lookup.leaveType, k -> new LinkedHashMap<>())
+                    .computeIfAbsent(lookup.employeeId, k -> new ArrayList<>())
+                    .add(lookup);
+        }
+        byLeaveType.forEach((leaveType, byEmployee) -> executor.execute(() -> send(leaveType, byEmployee)));
+    }
+
+    private void send(String leaveType, Map<String, List<Lookup>> byEmployee) {
+        URI uri = UriComponentsBuilder.fromUriString(batchUrl)
+                .queryParam(employeesParam, String.join(",", byEmployee.keySet()))
+                .queryParam(Yii2Endpoint.LEAVE_BALANCES.getParameterName(), leaveType)
+                .build()
+                .toUri();
+        batches.increment();
+        byEmployee.values().forEach(lookups -> batchedLookups.add(lookups.size()));
+
+        JsonNode body;
+        try {
+            body = guard.call(() -> call(uri, byEmployee.size(), traces(byEmployee)));
+        } catch (RestClientResponseException e) {
+            if (UNAVAILABLE_STATUSES.contains(e.getStatusCode().value())) {
+                unavailableUntil = clock.getAsLong() + unavailableRetryMillis;
+                log.warn("Yii2 leave balance batch endpoint answered {}; using single calls for the next {} s",
+                        e.getStatusCode().value(), TimeUnit.MILLISECONDS.toSeconds(unavailableRetryMillis));
+            }
+            completeAll(byEmployee, null);
+            return;
+        } catch (DependencyUnavailableException e) {
+            // An open circuit would reject the single calls too, so let the callers see it as is
+            byEmployee.values().forEach(lookups -> lookups.forEach(lookup -> lookup.result.completeExceptionally(e)));
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Yii2 leave balance batch for {} employees failed: {}", byEmployee.size(), e.getMessage());
+            completeAll(byEmployee, null);
+            return;
+        }
+        completeAll(byEmployee, body);
+    }
+
+    private JsonNode call(URI uri, int employees, Set<RequestTrace> traces) {
+        log.info("Calling Yii2 API for leave policy of {} employees: {}", employees, uri);
+        DistributionSummary.builder("yii2.batch.size")
+                .description("Employees per Yii2 leave balance batch call")
+                .register(meterRegistry)
+                .record(employees);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        String status = "error";
+        try {
+            ResponseEntity<JsonNode> response = restTemplate.getForEntity(uri, JsonNode.class);
+            status = String.valueOf(response.getStatusCode().value());
+            outcome = response.getStatusCode().is2xxSuccessful() ? "success" : "http_" + response.getStatusCode().value();
+            return response.getStatusCode().is2xxSuccessful() ? response.getBody() : null;
+        } catch (RuntimeException e) {
+            status = e instanceof RestClientResponseException responseException ?
+                    String.valueOf(responseException.getStatusCode().value()) : e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            long nanos = sample.stop(Timer.builder("yii2.request")
+                    .description("Yii2 HRMS API call")
+                    .tag("endpoint", "leave_balances_batch")
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            for (RequestTrace trace : traces) {
+                trace.stage("yii2.leave_balances_batch", nanos).downstream("yii2", status);
+            }
+        }
+    }
+
+    // Each request's trace once, however many of its lookups are in the batch
+    private static Set<RequestTrace> traces(Map<String, List<Lookup>> byEmployee) {
+        Set<RequestTrace> traces = new LinkedHashSet<>();
+        byEmployee.values().forEach(lookups -> lookups.forEach(lookup -> {
+            if (lookup.trace != null) {
+                traces.add(lookup.trace);
+            }
+        }));
+        return traces;
+    }
+
+    // Employees without an entry in the body (or every one, when body is null) fall back to single calls
+    private static void completeAll(Map<String, List<Lookup>> byEmployee, JsonNode body) {
+        byEmployee.forEach((employeeId, lookups) -> {
+            JsonNode entry = body == null ? null : body.get(employeeId);
+            for (Lookup lookup : lookups) {
+                if (entry == null || entry.isNull()) {
+                    lookup.result.completeExceptionally(FallBack.INSTANCE);
+                } else {
+                    lookup.result.complete(entry);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        windowTimer.shutdownNow();
+    }
+
+    private record Lookup(String employeeId, String leaveType, RequestTrace trace, CompletableFuture<JsonNode> result) {
+    }
+
+    // Signals "use the single call"; shared and stackless since it never escapes this class
+    private static final class FallBack extends RuntimeException {
+        static final FallBack INSTANCE = new FallBack();
+
+        private FallBack() {
+            super("Fall back to a single Yii2 call", null, false, false);
+        }
+    }
+
+    public record BatchStats(boolean enabled, boolean batchEndpointAvailable, long batches, long lookups,
+                             double meanBatchSize, long fallbacks) {
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.dialogflow.service.yii2;
+
+import com.example.dialogflow.service.EmployeeSessionStartedEvent;
+import com.example.dialogflow.service.intent.LeavePolicyIntentHandler;
+import com.example.dialogflow.service.intent.PayrollQueryIntentHandler;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Warms Yii2ResponseCache with an employee's leave balances and payroll info as soon as their chat
+// session starts, so the LeavePolicyInquiry/Payroll_Query webhooks that usually follow are answered
+// from memory. The cache's own TTLs (yii2.cache.ttl-seconds.*) bound how long the data is kept.
+//
+// Off by default (yii2.prefetch.enabled): it costs a few Yii2 calls per new session whether or not the
+// employee asks anything. Only the parameter values users most often ask about are fetched
+// (yii2.prefetch.leave-types and yii2.prefetch.payroll-topics). They default to the entity values the
+// intent handlers pass to Yii2Client, since a prefetch only helps if the webhook asks for exactly the
+// same cache key; overrides must use the agent's entity values as Dialogflow sends them.
+// Prefetching is bounded by a small pool whose queue drops work when full, and an employee is
+// prefetched at most once per yii2.prefetch.dedupe-seconds however many sessions they open. A webhook that arrives mid-prefetch joins the in-flight call via Yii2Client.
+@Slf4j
+@Component
+public class Yii2Prefetcher {
+
+    private static final int MAX_TRACKED_EMPLOYEES = 10_000;
+
+    private final Fetcher fetcher;
+    private final ExecutorService executor;
+    private final boolean enabled;
+    private final List<String> leaveTypes;
+    private final List<String> payrollTopics;
+    private final long dedupeMillis;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Long> lastPrefetched = new ConcurrentHashMap<>();
+
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder fetched = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    @Autowired
+    public Yii2Prefetcher(
+            Yii2Client yii2Client,
+            @Value("${yii2.prefetch.enabled:false}") boolean enabled,
+            @Value("${yii2.prefetch.leave-types:" + LeavePolicyIntentHandler.ANNUAL + ","
+                    + LeavePolicyIntentHandler.SICK + "}") List<String> leaveTypes,
+            @Value("${yii2.prefetch.payroll-topics:" + PayrollQueryIntentHandler.PAY_DATES + ","
+                    + PayrollQueryIntentHandler.PAY_STUBS + "}") List<String> payrollTopics,
+            @Value("${yii2.prefetch.dedupe-seconds:60}") long dedupeSeconds,
+            @Value("${yii2.prefetch.threads:2}") int threads,
+            @Value("${yii2.prefetch.queue-size:128}") int queueSize
+    ) {
+        this(yii2Client::get, enabled, leaveTypes, payrollTopics, TimeUnit.SECONDS.toMillis(dedupeSeconds),
+                System::currentTimeMillis, newPrefetchExecutor(threads, queueSize));
+    }
+
+    Yii2Prefetcher(Fetcher fetcher, boolean enabled, List<String> leaveTypes, List<String> payrollTopics,
+                   long dedupeMillis, LongSupplier clock, ExecutorService executor) {
+        this.fetcher = fetcher;
+        this.enabled = enabled;
+        this.leaveTypes = leaveTypes;
+        this.payrollTopics = payrollTopics;
+        this.dedupeMillis = dedupeMillis;
+        this.clock = clock;
+        this.executor = executor;
+    }
+
+    @EventListener
+    public void onSessionStarted(EmployeeSessionStartedEvent event) {
+        if (enabled) {
+            prefetch(event.employeeId());
+        }
+    }
+
+    // Returns false if the employee was prefetched recently or the queue is full
+    public boolean prefetch(String employeeId) {
+        long now = clock.getAsLong();
+        boolean[] due = new boolean[1];
+        lastPrefetched.compute(employeeId, (id, at) -> {
+            if (at != null && now - at < dedupeMillis) {
+                return at;
+            }
+            due[0] = true;
+            return now;
+        });
+        if (!due[0]) {
+            deduplicated.increment();
+            return false;
+        }
+        if (lastPrefetched.size() > MAX_TRACKED_EMPLOYEES) {
+            lastPrefetched.values().removeIf(at -> now - at >= dedupeMillis);
+        }
+
+        try {
+            executor.execute(() -> load(employeeId));
+            scheduled.increment();
+            return true;
+        } catch (RejectedExecutionException e) {
+            lastPrefetched.remove(employeeId, now); // let a later session try again
+            dropped.increment();
+            return false;
+        }
+    }
+
+    public PrefetchStats getStats() {
+        return new PrefetchStats(enabled, scheduled.sum(), deduplicated.sum(), dropped.sum(), fetched.sum(), failures.sum());
+    }
+
+    private void load(String employeeId) {
+        List<Runnable> calls = new ArrayList<>();
+        leaveTypes.forEach(leaveType -> calls.add(() -> fetcher.fetch(Yii2Endpoint.LEAVE_BALANCES, employeeId, leaveType)));
+        payrollTopics.forEach(topic -> calls.add(() -> fetcher.fetch(Yii2Endpoint.PAYROLL, employeeId, topic)));
+        for (Runnable call : calls) {
+            try {
+                call.run();
+                fetched.increment();
+            } catch (RuntimeException e) {
+                // Nothing is lost: the webhook will simply fetch on demand
+                failures.increment();
+                log.debug("Prefetch for employee {} failed: {}", employeeId, e.getMessage());
+            }
+        }
+    }
+
+    private static ExecutorService newPrefetchExecutor(int threads, int queueSize) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+            Thread t = new Thread(r, "yii2-prefetch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Yii2Client.get, with the response discarded: it only needs to land in the cache
+    @FunctionalInterface
+    interface Fetcher {
+        void fetch(Yii2Endpoint endpoint, String employeeId, String parameter);
+    }
+
+    public record PrefetchStats(boolean enabled, long scheduled, long deduplicated, long dropped, long fetched, long failures) {
+    }
+}
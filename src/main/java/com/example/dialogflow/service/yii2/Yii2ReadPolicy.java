@@ -0,0 +1,207 @@
+package com.example.dialogflow.service.yii2;
+
+import com.example.dialogflow.service.resilience.DependencyUnavailableException;
+import com.example.dialogflow.utils.Deadline;
+import com.example.dialogflow.utils.LatencyTracker;
+import com.example.dialogflow.utils.RetryBudget;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Attempt policy for Yii2 reads, which are all idempotent GETs:
+// - transient failures (I/O errors, 502/503/504) are retried with full-jitter exponential backoff,
+//   but only while the shared RetryBudget allows it and the caller's Deadline leaves room;
+// - optionally, an attempt still running after that endpoint's recent p95 gets a hedge: a second
+//   identical request, with whichever answers first winning. Hedges spend retry budget too;
+// - with a bounded deadline and hedging on, the caller stops waiting when the deadline passes.
+// An open circuit (DependencyUnavailableException) is never retried.
+@Slf4j
+@Component
+public class Yii2ReadPolicy {
+
+    private static final int LATENCY_WINDOW = 256;
+
+    private final RetryBudget retryBudget;
+    private final ExecutorService executor;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final boolean hedging;
+    private final long minHedgeDelayNanos;
+    private final int minHedgeSamples;
+    private final Map<Yii2Endpoint, LatencyTracker> latencies = new EnumMap<>(Yii2Endpoint.class);
+
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder deadlineExceeded = new LongAdder();
+
+    @Autowired
+    public Yii2ReadPolicy(
+            @Qualifier("outboundExecutor") ExecutorService executor,
+            @Value("${yii2.retry.max-attempts:3}") int maxAttempts,
+            @Value("${yii2.retry.base-backoff-ms:50}") long baseBackoffMillis,
+            @Value("${yii2.retry.max-backoff-ms:500}") long maxBackoffMillis,
+            @Value("${yii2.retry.budget-ratio:0.1}") double budgetRatio,
+            @Value("${yii2.retry.budget-reserve:10}") int budgetReserve,
+            @Value("${yii2.hedge.enabled:false}") boolean hedging,
+            @Value("${yii2.hedge.min-delay-ms:20}") long minHedgeDelayMillis,
+            @Value("${yii2.hedge.min-samples:20}") int minHedgeSamples
+    ) {
+        this(new RetryBudget(budgetRatio, budgetReserve), executor, maxAttempts, baseBackoffMillis, maxBackoffMillis,
+                hedging, minHedgeDelayMillis, minHedgeSamples);
+    }
+
+    Yii2ReadPolicy(RetryBudget retryBudget, ExecutorService executor, int maxAttempts, long baseBackoffMillis,
+                   long maxBackoffMillis, boolean hedging, long minHedgeDelayMillis, int minHedgeSamples) {
+        this.retryBudget = retryBudget;
+        this.executor = executor;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.hedging = hedging;
+        this.minHedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(minHedgeDelayMillis);
+        this.minHedgeSamples = minHedgeSamples;
+        for (Yii2Endpoint endpoint : Yii2Endpoint.values()) {
+            latencies.put(endpoint, new LatencyTracker(LATENCY_WINDOW));
+        }
+    }
+
+    public <T> T execute(Yii2Endpoint endpoint, Deadline deadline, Supplier<T> attempt) {
+        retryBudget.recordRequest();
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            try {
+                return hedging ? hedged(endpoint, deadline, attempt) : timed(endpoint, attempt);
+            } catch (RuntimeException e) {
+                if (!isRetryable(e) || attemptNumber >= maxAttempts) {
+                    throw e;
+                }
+                long backoffMillis = backoffMillis(attemptNumber);
+                long typicalAttemptNanos = Math.max(0, latencies.get(endpoint).percentile(0.5));
+                if (deadline.remainingNanos() <= TimeUnit.MILLISECONDS.toNanos(backoffMillis) + typicalAttemptNanos) {
+                    throw e; // another attempt would most likely finish after the caller has given up
+                }
+                if (!retryBudget.tryAcquireRetry()) {
+                    log.warn("Yii2 retry budget exhausted, not retrying {}: {}", endpoint, e.getMessage());
+                    throw e;
+                }
+                log.info("Retrying Yii2 {} in {} ms after attempt {} failed: {}", endpoint, backoffMillis,
+                        attemptNumber, e.getMessage());
+                sleep(backoffMillis);
+            }
+        }
+    }
+
+    public PolicyStats getStats() {
+        RetryBudget.Stats budget = retryBudget.getStats();
+        Map<String, Long> p95Millis = new LinkedHashMap<>();
+        latencies.forEach((endpoint, tracker) ->
+                p95Millis.put(endpoint.name(), TimeUnit.NANOSECONDS.toMillis(tracker.percentile(0.95))));
+        return new PolicyStats(budget.requests(), budget.retries(), budget.exhausted(), budget.balance(),
+                hedging, hedges.sum(), hedgeWins.sum(), deadlineExceeded.sum(), p95Millis);
+    }
+
+    private <T> T timed(Yii2Endpoint endpoint, Supplier<T> attempt) {
+        long start = System.nanoTime();
+        T result = attempt.get();
+        latencies.get(endpoint).record(System.nanoTime() - start);
+        return result;
+    }
+
+    private <T> T hedged(Yii2Endpoint endpoint, Deadline deadline, Supplier<T> attempt) {
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        CompletableFuture<T> primary = launch(endpoint, attempt, winner, pending);
+
+        LatencyTracker tracker = latencies.get(endpoint);
+        long hedgeDelay = tracker.sampleCount() >= minHedgeSamples ?
+                Math.max(minHedgeDelayNanos, tracker.percentile(0.95)) : Long.MAX_VALUE;
+        try {
+            if (hedgeDelay < deadline.remainingNanos()) {
+                try {
+                    return winner.get(hedgeDelay, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException slow) {
+                    if (retryBudget.tryAcquireRetry()) {
+                        hedges.increment();
+                        pending.incrementAndGet();
+                        launch(endpoint, attempt, winner, pending).thenRun(() -> {
+                            if (!primary.isDone()) {
+                                hedgeWins.increment();
+                            }
+                        });
+                    }
+                }
+            }
+            return deadline.isBounded() ? winner.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS) : winner.get();
+        } catch (TimeoutException e) {
+            deadlineExceeded.increment();
+            throw new ResourceAccessException("Yii2 " + endpoint + " did not answer before the request deadline");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted waiting for Yii2 " + endpoint);
+        }
+    }
+
+    // First success completes the winner; a failure only does once every attempt has failed
+    private <T> CompletableFuture<T> launch(Yii2Endpoint endpoint, Supplier<T> attempt,
+                                            CompletableFuture<T> winner, AtomicInteger pending) {
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> timed(endpoint, attempt), executor);
+        future.whenComplete((result, e) -> {
+            if (e == null) {
+                winner.complete(result);
+            } else if (pending.decrementAndGet() == 0) {
+                winner.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            }
+        });
+        return future;
+    }
+
+    static boolean isRetryable(RuntimeException e) {
+        if (e instanceof DependencyUnavailableException) {
+            return false;
+        }
+        if (e instanceof HttpServerErrorException serverError) {
+            int status = serverError.getStatusCode().value();
+            return status == 502 || status == 503 || status == 504;
+        }
+        return e instanceof ResourceAccessException;
+    }
+
+    // Full jitter: uniform in [0, min(max, base * 2^(attempt - 1))]
+    private long backoffMillis(int attemptNumber) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attemptNumber - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while backing off a Yii2 retry");
+        }
+    }
+
+    public record PolicyStats(long requests, long retries, long budgetExhausted, double budgetBalance, boolean hedging,
+                              long hedges, long hedgeWins, long deadlineExceeded, Map<String, Long> p95Millis) {
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.dialogflow.service.yii2;
+
+import com.example.dialogflow.utils.Deadline;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+// Size-bounded LRU cache of Yii2 response bodies with a TTL per endpoint. Once an entry's TTL has
+// passed it is still served for the stale window while a single background refresh reloads it,
+// so the webhook only waits on Yii2 for cold keys. The refresh outlives the request that triggered it,
+// so it is loaded under its own deadline (yii2.cache.refresh-timeout-ms), not that request's.
+@Slf4j
+@Component
+public class Yii2ResponseCache {
+
+    private final Map<Key, Entry> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Yii2Endpoint, Long> ttlMillis;
+    private final long staleMillis;
+    private final long refreshTimeoutMillis;
+    private final LongSupplier clock;
+    private final ExecutorService refreshExecutor;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public Yii2ResponseCache(
+            @Value("${yii2.cache.max-entries:10000}") int maxEntries,
+            @Value("${yii2.cache.ttl-seconds.leave-balances:60}") long leaveBalancesTtlSeconds,
+            @Value("${yii2.cache.ttl-seconds.payroll:300}") long payrollTtlSeconds,
+            @Value("${yii2.cache.ttl-seconds.hr-contacts:3600}") long hrContactsTtlSeconds,
+            @Value("${yii2.cache.stale-seconds:300}") long staleSeconds,
+            @Value("${yii2.cache.refresh-threads:2}") int refreshThreads,
+            @Value("${yii2.cache.refresh-timeout-ms:10000}") long refreshTimeoutMillis
+    ) {
+        this(maxEntries, ttls(leaveBalancesTtlSeconds, payrollTtlSeconds, hrContactsTtlSeconds),
+                TimeUnit.SECONDS.toMillis(staleSeconds), refreshTimeoutMillis, System::currentTimeMillis,
+                newRefreshExecutor(refreshThreads));
+    }
+
+    Yii2ResponseCache(int maxEntries, Map<Yii2Endpoint, Long> ttlMillis, long staleMillis, long refreshTimeoutMillis,
+                      LongSupplier clock, ExecutorService refreshExecutor) {
+        this.ttlMillis = ttlMillis;
+        this.staleMillis = staleMillis;
+        this.refreshTimeoutMillis = refreshTimeoutMillis;
+        this.clock = clock;
+        this.refreshExecutor = refreshExecutor;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                boolean evict = size() > maxEntries;
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+    }
+
+    // Returns the cached body for the key, loading it under the caller's deadline on a miss. The loader
+    // may return null for a non-successful response, which is passed through but never cached.
+    public JsonNode get(Key key, Deadline deadline, Loader loader) {
+        long now = clock.getAsLong();
+        Entry entry;
+        lock.lock();
+        try {
+            entry = entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+
+        if (entry != null) {
+            long age = now - entry.loadedAt;
+            long ttl = ttlMillis.getOrDefault(key.endpoint(), 0L);
+            if (age < ttl) {
+                hits.increment();
+                return entry.body;
+            }
+            if (age < ttl + staleMillis) {
+                staleHits.increment();
+                refreshInBackground(key, entry, loader);
+                return entry.body;
+            }
+        }
+
+        misses.increment();
+        JsonNode body = loader.load(deadline);
+        put(key, body);
+        return body;
+    }
+
+    public void invalidate(Key key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CacheStats getStats() {
+        int size;
+        lock.lock();
+        try {
+            size = entries.size();
+        } finally {
+            lock.unlock();
+        }
+        return new CacheStats(size, hits.sum(), staleHits.sum(), misses.sum(), refreshFailures.sum(), evictions.sum());
+    }
+
+    private void refreshInBackground(Key key, Entry stale, Loader loader) {
+        // Only one refresh per entry; everyone else keeps getting the stale body meanwhile
+        if (!stale.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    put(key, loader.load(Deadline.after(Duration.ofMillis(refreshTimeoutMillis))));
+                } catch (RuntimeException e) {
+                    refreshFailures.increment();
+                    log.warn("Background refresh of {} failed, serving stale data: {}", key, e.getMessage());
+                } finally {
+                    stale.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            stale.refreshing.set(false);
+            log.debug("Refresh queue full, skipping background refresh of {}", key);
+        }
+    }
+
+    private void put(Key key, JsonNode body) {
+        if (body == null || ttlMillis.getOrDefault(key.endpoint(), 0L) <= 0) {
+            return;
+        }
+        Entry entry = new Entry(body, clock.getAsLong());
+        lock.lock();
+        try {
+            entries.put(key, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Map<Yii2Endpoint, Long> ttls(long leaveBalances, long payroll, long hrContacts) {
+        Map<Yii2Endpoint, Long> ttls = new EnumMap<>(Yii2Endpoint.class);
+        ttls.put(Yii2Endpoint.LEAVE_BALANCES, TimeUnit.SECONDS.toMillis(leaveBalances));
+        ttls.put(Yii2Endpoint.PAYROLL, TimeUnit.SECONDS.toMillis(payroll));
+        ttls.put(Yii2Endpoint.HR_CONTACTS, TimeUnit.SECONDS.toMillis(hrContacts));
+        return ttls;
+    }
+
+    private static ExecutorService newRefreshExecutor(int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(256), r -> {
+            Thread t = new Thread(r, "yii2-cache-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    // Yii2Client.fetch for one key, under the given deadline
+    @FunctionalInterface
+    public interface Loader {
+        JsonNode load(Deadline deadline);
+    }
+
+    public record Key(Yii2Endpoint endpoint, String employeeId, String parameter) {
+    }
+
+    private static final class Entry {
+        final JsonNode body;
+        final long loadedAt;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(JsonNode body, long loadedAt) {
+            this.body = body;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    public record CacheStats(int size, long hits, long staleHits, long misses, long refreshFailures, long evictions) {
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.dialogflow.utils;
+
+import java.time.Duration;
+
+// Point in (monotonic) time by which a request must have its answer. Created where the time limit is
+// known, e.g. the webhook, which Dialogflow abandons after 5 seconds, and handed down to the calls
+// made on its behalf so they can decide whether another attempt is still worth making.
+public final class Deadline {
+
+    private static final Deadline NONE = new Deadline(0, false);
+
+    private final long deadlineNanos;
+    private final boolean bounded;
+
+    private Deadline(long deadlineNanos, boolean bounded) {
+        this.deadlineNanos = deadlineNanos;
+        this.bounded = bounded;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos(), true);
+    }
+
+    public static Deadline none() {
+        return NONE;
+    }
+
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    // Long.MAX_VALUE when unbounded, never negative
+    public long remainingNanos() {
+        return bounded ? Math.max(0, deadlineNanos - System.nanoTime()) : Long.MAX_VALUE;
+    }
+
+    public boolean isExpired() {
+        return bounded && deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return bounded ? Duration.ofNanos(remainingNanos()).toMillis() + "ms left" : "no deadline";
+    }
+}
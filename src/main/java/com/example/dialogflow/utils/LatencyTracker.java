@@ -0,0 +1,41 @@
+package com.example.dialogflow.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Keeps the last `window` latency samples in a ring and answers percentile queries over them.
+// Recording is a single atomic increment and store; a percentile copies and sorts the window, which
+// for the few hundred samples used here costs about as much as a small allocation.
+public class LatencyTracker {
+
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+
+    public LatencyTracker(int window) {
+        this.samples = new AtomicLongArray(window);
+    }
+
+    public void record(long nanos) {
+        long index = count.getAndIncrement();
+        samples.set((int) (index % samples.length()), nanos);
+    }
+
+    public int sampleCount() {
+        return (int) Math.min(count.get(), samples.length());
+    }
+
+    // e.g. percentile(0.95); -1 with no samples yet
+    public long percentile(double quantile) {
+        int size = sampleCount();
+        if (size == 0) {
+            return -1;
+        }
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        return sorted[Math.max(0, Math.min(size - 1, (int) Math.ceil(quantile * size) - 1))];
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.dialogflow.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Caps retries at a fraction of the requests actually made, so a struggling dependency sees at most
+// (1 + ratio) times its normal load instead of max-attempts times. Every request deposits `ratio`
+// of a retry and every retry withdraws a whole one; the balance is capped at `reserve` retries,
+// which is also what a cold or idle client starts with. Lock-free; balances are kept in thousandths.
+public class RetryBudget {
+
+    private static final long UNIT = 1000;
+
+    private final long depositPerRequest;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public RetryBudget(double ratio, int reserve) {
+        this.depositPerRequest = Math.round(ratio * UNIT);
+        this.maxBalance = reserve * UNIT;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    public void recordRequest() {
+        requests.increment();
+        balance.accumulateAndGet(depositPerRequest, (current, deposit) -> Math.min(maxBalance, current + deposit));
+    }
+
+    // True if a retry may go out now; the caller must then make it
+    public boolean tryAcquireRetry() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < UNIT) {
+                exhausted.increment();
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - UNIT));
+        retries.increment();
+        return true;
+    }
+
+    public Stats getStats() {
+        return new Stats(requests.sum(), retries.sum(), exhausted.sum(), balance.get() / (double) UNIT);
+    }
+
+    public record Stats(long requests, long retries, long exhausted, double balance) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.dialogflow.authconfig;
+
+import com.example.dialogflow.model.PrincipalUser;
+import com.example.dialogflow.model.Role;
+import com.example.dialogflow.model.Users;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor();
+    // Stands in for the token_revocation table shared by all nodes
+    private final List<TokenRevocation> table = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean tableDown = new AtomicBoolean();
+    private final JwtService.RevocationStore store = new JwtService.RevocationStore() {
+        @Override
+        public void save(TokenRevocation revocation) {
+            table.add(revocation);
+        }
+
+        @Override
+        public List<TokenRevocation> loadActive(long now) {
+            if (tableDown.get()) {
+                throw new IllegalStateException("connection refused");
+            }
+            return table.stream().filter(revocation -> revocation.expiresAt() > now).toList();
+        }
+    };
+    private final JwtService jwtService = node(SECRET);
+
+    private JwtService node(String secret) {
+        return new JwtService(secret, 60_000, 2, now::get, store, refresher);
+    }
+
+    @AfterEach
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private static Users user(String username, Role role) {
+        return Users.builder().id(7).username(username).email(username + "@example.com").role(role).passwordHash("x").build();
+    }
+
+    @Test
+    void principalIsBuiltFromClaimsAndLaterRequestsHitTheCache() {
+        String token = jwtService.generateToken(user("alice", Role.ADMIN));
+
+        PrincipalUser principal = jwtService.authenticate(token);
+        assertNotNull(principal);
+        assertEquals("alice", principal.getUsername());
+        assertTrue(principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).anyMatch("ROLE_ADMIN"::equals));
+
+        assertNotNull(jwtService.authenticate(token));
+        assertEquals(1, jwtService.getStats().cacheMisses());
+        assertEquals(1, jwtService.getStats().cacheHits());
+    }
+
+    @Test
+    void tamperedAndForeignTokensAreRejected() {
+        String token = jwtService.generateToken(user("alice", Role.USER));
+        String foreign = node("ffffffffffffffffffffffffffffffff")
+                .generateToken(user("alice", Role.SUPER_ADMIN));
+
+        assertNull(jwtService.authenticate(token.substring(0, token.length() - 2) + "xx"));
+        assertNull(jwtService.authenticate(foreign));
+        assertNull(jwtService.authenticate("not-a-jwt"));
+    }
+
+    @Test
+    void cachedTokenStopsWorkingWhenItExpires() {
+        String token = jwtService.generateToken(user("alice", Role.USER));
+        assertNotNull(jwtService.authenticate(token));
+
+        now.addAndGet(60_000);
+
+        assertNull(jwtService.authenticate(token));
+    }
+
+    @Test
+    void revokedTokenIsRejectedEvenWhenCached() {
+        String token = jwtService.generateToken(user("alice", Role.USER));
+        String other = jwtService.generateToken(user("alice", Role.USER));
+        assertNotNull(jwtService.authenticate(token));
+
+        assertTrue(jwtService.revokeToken(token));
+
+        assertNull(jwtService.authenticate(token));
+        assertNotNull(jwtService.authenticate(other));
+        assertFalse(jwtService.revokeToken("not-a-jwt"));
+    }
+
+    @Test
+    void revokingAUserRejectsTokensIssuedBeforeButNotAfter() {
+        String old = jwtService.generateToken(user("alice", Role.USER));
+        String bob = jwtService.generateToken(user("bob", Role.USER));
+        assertNotNull(jwtService.authenticate(old));
+
+        now.addAndGet(1_000);
+        jwtService.revokeAllFor("alice");
+        now.addAndGet(1_000);
+        String fresh = jwtService.generateToken(user("alice", Role.USER));
+
+        assertNull(jwtService.authenticate(old));
+        assertNotNull(jwtService.authenticate(fresh));
+        assertNotNull(jwtService.authenticate(bob));
+    }
+
+    @Test
+    void revocationsReachOtherNodesOnTheirNextRefresh() {
+        JwtService otherNode = node(SECRET);
+        String token = jwtService.generateToken(user("alice", Role.USER));
+        String bob = jwtService.generateToken(user("bob", Role.USER));
+        assertNotNull(otherNode.authenticate(token));
+        assertNotNull(otherNode.authenticate(bob));
+
+        jwtService.revokeToken(token);
+        now.addAndGet(1_000);
+        jwtService.revokeAllFor("bob");
+        assertNotNull(otherNode.authenticate(token)); // not refreshed yet
+
+        otherNode.refreshRevocations();
+
+        assertNull(otherNode.authenticate(token));
+        assertNull(otherNode.authenticate(bob));
+        assertEquals(1, otherNode.getStats().revokedTokens());
+        assertEquals(1, otherNode.getStats().revokedUsers());
+    }
+
+    @Test
+    void failedRefreshKeepsKnownRevocations() {
+        String token = jwtService.generateToken(user("alice", Role.USER));
+        jwtService.revokeToken(token);
+        tableDown.set(true);
+
+        jwtService.refreshRevocations();
+
+        assertNull(jwtService.authenticate(token));
+        assertEquals(1, jwtService.getStats().revocationRefreshFailures());
+    }
+
+    @Test
+    void expiredRevocationsAreDropped() {
+        jwtService.revokeToken(jwtService.generateToken(user("alice", Role.USER)));
+        jwtService.revokeAllFor("bob");
+
+        now.addAndGet(60_000);
+        jwtService.refreshRevocations();
+
+        assertEquals(0, jwtService.getStats().revokedTokens());
+        assertEquals(0, jwtService.getStats().revokedUsers());
+    }
+
+    @Test
+    void cacheIsBounded() {
+        for (int i = 0; i < 5; i++) {
+            jwtService.authenticate(jwtService.generateToken(user("user" + i, Role.USER)));
+        }
+
+        assertEquals(2, jwtService.getStats().cachedTokens());
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.dialogflow.service;
+
+import com.example.dialogflow.dto.ChatRequest;
+import com.example.dialogflow.dto.ChatResponse;
+import com.example.dialogflow.dto.DialogflowReply;
+import com.example.dialogflow.service.faq.FaqService;
+import com.example.dialogflow.service.resilience.DependencyGuards;
+import com.example.dialogflow.service.transcript.TranscriptTurn;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatBatchServiceTest {
+
+    private final StubDialogflow dialogflow = new StubDialogflow();
+    private final List<TranscriptTurn> transcripts = new CopyOnWriteArrayList<>();
+
+    private ChatBatchService service(int parallelism, long timeoutMillis) {
+        return new ChatBatchService(dialogflow,
+                new SessionIdEmployeeIdMappingService(60_000, 100, 60, System::currentTimeMillis, false),
+                new FaqService(new DefaultResourceLoader(), new ObjectMapper(), "", 0.75), transcripts::add,
+                parallelism, 100, timeoutMillis);
+    }
+
+    private static ChatRequest request(String sessionId, String message) {
+        ChatRequest request = new ChatRequest();
+        request.setSessionId(sessionId);
+        request.setMessage(message);
+        return request;
+    }
+
+    @Test
+    void moreSessionsThanParallelismNeverHoldsMoreCallsInFlight() {
+        CompletableFuture<List<ChatResponse>> result = service(2, 10_000).process(List.of(
+                request("a", "1"), request("b", "2"), request("c", "3"), request("d", "4"), request("e", "5")));
+
+        // Completing replies on this thread moves each lane on; nothing waits on a pool thread
+        for (int completed = 0; completed < 5; completed++) {
+            assertEquals(Math.min(2, 5 - completed), dialogflow.pending().size());
+            dialogflow.pending().get(0).reply();
+        }
+
+        List<ChatResponse> responses = result.join();
+        assertEquals(List.of("reply to 1", "reply to 2", "reply to 3", "reply to 4", "reply to 5"),
+                responses.stream().map(ChatResponse::getReply).toList());
+    }
+
+    @Test
+    void messagesInOneSessionRunInOrder() {
+        CompletableFuture<List<ChatResponse>> result = service(8, 10_000).process(List.of(
+                request("a", "first"), request("a", "second")));
+
+        assertEquals(List.of("first"), dialogflow.messages());
+        dialogflow.pending().get(0).reply();
+        assertEquals(List.of("first", "second"), dialogflow.messages());
+        dialogflow.pending().get(0).reply();
+
+        assertEquals("reply to second", result.join().get(1).getReply());
+    }
+
+    @Test
+    void failedMessageGetsAnErrorInItsSlot() {
+        CompletableFuture<List<ChatResponse>> result = service(8, 10_000).process(List.of(
+                request("a", "1"), request("b", "2")));
+
+        dialogflow.pending().get(0).future.completeExceptionally(new IllegalStateException("UNAVAILABLE"));
+        dialogflow.pending().get(0).reply();
+
+        List<ChatResponse> responses = result.join();
+        assertFalse(responses.get(0).isSuccess());
+        assertEquals("UNAVAILABLE", responses.get(0).getError());
+        assertTrue(responses.get(1).isSuccess());
+        assertEquals(List.of("error", "ok"), transcripts.stream().map(TranscriptTurn::outcome).toList());
+    }
+
+    @Test
+    void batchTimeoutCancelsCallsStillInFlight() throws Exception {
+        CompletableFuture<List<ChatResponse>> result = service(1, 50).process(List.of(
+                request("a", "1"), request("b", "2")));
+
+        List<ChatResponse> responses = result.get(5, TimeUnit.SECONDS);
+
+        assertEquals("Batch timed out", responses.get(0).getError());
+        assertEquals("Batch timed out", responses.get(1).getError());
+        assertTrue(dialogflow.calls.get(0).future.isCancelled());
+        assertEquals(1, dialogflow.calls.size()); // the lane stopped instead of starting session b
+        assertEquals(List.of("timeout", "timeout"), transcripts.stream().map(TranscriptTurn::outcome).toList());
+    }
+
+    @Test
+    void everyMessageIsWrittenToTheTranscriptOnTheBatchChannel() {
+        CompletableFuture<List<ChatResponse>> result = service(8, 10_000).process(List.of(
+                request("a", "1"), request("b", "2")));
+        dialogflow.pending().get(1).reply();
+        dialogflow.pending().get(0).reply();
+        result.join();
+
+        assertEquals(2, transcripts.size());
+        assertTrue(transcripts.stream().allMatch(turn -> turn.channel().equals("batch")));
+        assertEquals(List.of("2", "1"), transcripts.stream().map(TranscriptTurn::message).toList());
+        assertEquals("reply to 2", transcripts.get(0).reply());
+        assertEquals("intent", transcripts.get(0).intent());
+        assertEquals("b", transcripts.get(0).sessionId());
+    }
+
+    private static final class StubDialogflow extends DialogflowService {
+
+        private final List<Call> calls = new CopyOnWriteArrayList<>();
+
+        private StubDialogflow() {
+            super("unused.json", "hr-bot", "en-US", 10_000, new SimpleMeterRegistry(),
+                    new DependencyGuards(new StandardEnvironment()), 2, 60, 10, 4 * 1024 * 1024, 4, true);
+        }
+
+        @Override
+        public CompletableFuture<DialogflowReply> detectIntentAsync(String message, String sessionId) {
+            Call call = new Call(message, new CompletableFuture<>());
+            calls.add(call);
+            return call.future;
+        }
+
+        private List<Call> pending() {
+            return calls.stream().filter(call -> !call.future.isDone()).toList();
+        }
+
+        private List<String> messages() {
+            return calls.stream().map(Call::message).toList();
+        }
+    }
+
+    private record Call(String message, CompletableFuture<DialogflowReply> future) {
+        private void reply() {
+            future.complete(new DialogflowReply("intent", 1f, "reply to " + message));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.dialogflow.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompletionCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void promptsDifferingOnlyInCaseWhitespaceAndPunctuationShareAnEntry() {
+        CompletionCache cache = new CompletionCache(10, 100_000, 60_000, now::get);
+        cache.put("deepseek/gpt-4", "How do I apply for leave?", "Use the HR portal.");
+
+        assertEquals("Use the HR portal.", cache.get("deepseek/gpt-4", "  how do i apply   for LEAVE "));
+        assertNull(cache.get("openai/gpt-4", "How do I apply for leave?"));
+        assertEquals(0.5, cache.getStats().hitRatio());
+    }
+
+    @Test
+    void entriesExpireAfterTtl() {
+        CompletionCache cache = new CompletionCache(10, 100_000, 60_000, now::get);
+        cache.put("m", "q", "a");
+
+        now.addAndGet(60_000);
+
+        assertNull(cache.get("m", "q"));
+        assertEquals(0, cache.getStats().bytes());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenOverByteBudget() {
+        CompletionCache cache = new CompletionCache(100, 1_000, 60_000, now::get);
+        String answer = "x".repeat(200); // ~560 bytes with overhead, so only one fits
+        cache.put("m", "first", answer);
+        cache.put("m", "second", answer);
+
+        assertNull(cache.get("m", "first"));
+        assertEquals(answer, cache.get("m", "second"));
+        assertTrue(cache.getStats().bytes() <= 1_000);
+        assertEquals(1, cache.getStats().evictions());
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.dialogflow.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DialogflowWarmupTest {
+
+    @Test
+    void outOfServiceUntilWarmUpFinishes() {
+        DialogflowWarmup warmup = new DialogflowWarmup(() -> 2, true);
+
+        assertEquals(Status.OUT_OF_SERVICE, warmup.health().getStatus());
+        warmup.warmUp();
+
+        assertEquals(Status.UP, warmup.health().getStatus());
+        assertEquals(2, warmup.health().getDetails().get("succeededCalls"));
+    }
+
+    @Test
+    void failedWarmUpStillBecomesReady() {
+        DialogflowWarmup warmup = new DialogflowWarmup(() -> {
+            throw new IllegalStateException("UNAVAILABLE: io exception");
+        }, true);
+
+        warmup.warmUp();
+
+        assertEquals(Status.UP, warmup.health().getStatus());
+        assertEquals("UNAVAILABLE: io exception", warmup.health().getDetails().get("error"));
+    }
+
+    @Test
+    void disabledWarmUpIsReadyWithoutCalling() {
+        DialogflowWarmup warmup = new DialogflowWarmup(() -> {
+            throw new AssertionError("should not be called");
+        }, false);
+
+        warmup.warmUp();
+
+        assertEquals(Status.UP, warmup.health().getStatus());
+    }
+
+    @Test
+    void asyncWarmUpDoesNotBlockTheRunner() throws Exception {
+        List<Runnable> submitted = new ArrayList<>();
+        DialogflowWarmup warmup = new DialogflowWarmup(() -> 2, true, submitted::add);
+
+        warmup.run(null);
+
+        assertEquals(1, submitted.size());
+        assertEquals(Status.OUT_OF_SERVICE, warmup.health().getStatus());
+        submitted.get(0).run();
+        assertEquals(Status.UP, warmup.health().getStatus());
+    }
+}
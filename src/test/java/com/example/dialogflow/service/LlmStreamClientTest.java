@@ -0,0 +1,121 @@
+package com.example.dialogflow.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmStreamClientTest {
+
+    private HttpServer server;
+    private LlmStreamClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Stub provider: /slow sends a delta every 100 ms, /stall sends one and goes quiet, /denied answers 401
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/slow", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < 5; i++) {
+                    sendDelta(out, "t" + i);
+                    pause(100);
+                }
+                out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.createContext("/stall", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                sendDelta(out, "t0");
+                pause(1_500);
+            } catch (IOException ignored) {
+                // the client gave up
+            }
+        });
+        server.createContext("/denied", exchange -> {
+            exchange.sendResponseHeaders(401, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+        client.shutdown();
+    }
+
+    private LlmStreamClient client(long idleTimeoutMillis) {
+        client = new LlmStreamClient(HttpClient.newHttpClient(), idleTimeoutMillis);
+        return client;
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    @Test
+    void streamMayRunLongerThanTheIdleTimeoutAsLongAsChunksKeepComing() {
+        List<String> tokens = new ArrayList<>();
+
+        int delivered = client(300).post(url("/slow"), "key", new byte[0],
+                body -> ChatCompletionStream.read(body, objectMapper, tokens::add));
+
+        assertEquals(5, delivered);
+        assertEquals(List.of("t0", "t1", "t2", "t3", "t4"), tokens);
+    }
+
+    @Test
+    void quietStreamFailsAfterTheIdleTimeout() {
+        List<String> tokens = new ArrayList<>();
+        long start = System.nanoTime();
+
+        ResourceAccessException e = assertThrows(ResourceAccessException.class, () -> client(200).post(
+                url("/stall"), "key", new byte[0], body -> ChatCompletionStream.read(body, objectMapper, tokens::add)));
+
+        assertInstanceOf(HttpTimeoutException.class, e.getCause());
+        assertEquals(List.of("t0"), tokens);
+        assertTrue(System.nanoTime() - start < 3_000_000_000L);
+    }
+
+    @Test
+    void errorStatusIsThrownLikeRestTemplateDoes() {
+        HttpClientErrorException e = assertThrows(HttpClientErrorException.class,
+                () -> client(1_000).post(url("/denied"), "key", new byte[0], body -> 0));
+
+        assertEquals(401, e.getStatusCode().value());
+    }
+
+    private static void sendDelta(OutputStream out, String content) throws IOException {
+        out.write(("data: {\"choices\":[{\"delta\":{\"content\":\"" + content + "\"}}]}\n\n")
+                .getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.dialogflow.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SessionIdEmployeeIdMappingServiceTest {
+
+    private static final long TIMEOUT = TimeUnit.MINUTES.toMillis(60);
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.DAYS.toMillis(1));
+
+    private SessionIdEmployeeIdMappingService service(int maxEntries) {
+        return new SessionIdEmployeeIdMappingService(TIMEOUT, maxEntries, 60, now::get, false);
+    }
+
+    @Test
+    void idleSessionsAreSweptAfterTimeout() {
+        SessionIdEmployeeIdMappingService service = service(100);
+        service.saveMapping("s1", "E1");
+        service.saveMapping("s2", "E2");
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(30));
+        assertEquals("E1", service.getEmployeeId("s1")); // touch s1 only
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(45));
+        service.cleanupExpiredSessions();
+
+        assertEquals(1, service.size());
+        assertEquals("E1", service.getEmployeeId("s1"));
+        assertNull(service.getEmployeeId("s2"));
+        assertEquals(1, service.getStats().expirations());
+    }
+
+    @Test
+    void expiredEntryIsNotServedBeforeSweep() {
+        SessionIdEmployeeIdMappingService service = service(100);
+        service.saveMapping("s1", "E1");
+
+        now.addAndGet(TIMEOUT);
+
+        assertNull(service.getEmployeeId("s1"));
+        assertEquals(0, service.size());
+    }
+
+    @Test
+    void leastRecentlyUsedSessionIsEvictedAtCapacity() {
+        SessionIdEmployeeIdMappingService service = service(2);
+        service.saveMapping("s1", "E1");
+        now.addAndGet(TimeUnit.MINUTES.toMillis(5));
+        service.saveMapping("s2", "E2");
+        now.addAndGet(TimeUnit.MINUTES.toMillis(5));
+        service.getEmployeeId("s1"); // s2 is now the least recently used
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(5));
+        service.saveMapping("s3", "E3");
+
+        assertEquals(2, service.size());
+        assertNull(service.getEmployeeId("s2"));
+        assertEquals("E1", service.getEmployeeId("s1"));
+        assertEquals("E3", service.getEmployeeId("s3"));
+        assertEquals(1, service.getStats().evictions());
+    }
+
+    @Test
+    void resavingSameMappingCountsAsAccess() {
+        SessionIdEmployeeIdMappingService service = service(100);
+        service.saveMapping("s1", "E1");
+        now.addAndGet(TimeUnit.MINUTES.toMillis(50));
+        service.saveMapping("s1", "E1");
+        now.addAndGet(TimeUnit.MINUTES.toMillis(50));
+        service.cleanupExpiredSessions();
+
+        assertEquals("E1", service.getEmployeeId("s1"));
+        assertEquals(1, service.getStats().hits());
+    }
+}
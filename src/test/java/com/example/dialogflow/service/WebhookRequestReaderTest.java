@@ -0,0 +1,68 @@
+package com.example.dialogflow.service;
+
+import com.example.dialogflow.dto.WebhookRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WebhookRequestReaderTest {
+
+    private final WebhookRequestReader reader = new WebhookRequestReader(new ObjectMapper());
+
+    private WebhookRequest read(String json) throws Exception {
+        return reader.read(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void readsTheFieldsTheWebhookUsesAndSkipsTheRest() throws Exception {
+        WebhookRequest request = read("""
+                {
+                  "responseId": "r1",
+                  "queryResult": {
+                    "outputContexts": [{"name": "ctx", "parameters": {"leaveType": "sick"}}],
+                    "queryText": "annual leave policy",
+                    "parameters": {"leaveType": "annual", "days": 3, "urgent": true, "note": null},
+                    "intent": {"name": "projects/p/agent/intents/1", "displayName": "LeavePolicyInquiry"}
+                  },
+                  "originalDetectIntentRequest": {"payload": {"session": "not-this-one"}},
+                  "session": "projects/hr-bot/agent/sessions/abc-123"
+                }
+                """);
+
+        assertEquals("abc-123", request.sessionId());
+        assertEquals("LeavePolicyInquiry", request.intentName());
+        assertEquals("annual leave policy", request.queryText());
+        assertEquals(Map.of("leaveType", "annual", "days", "3", "urgent", "true"), request.parameters());
+    }
+
+    @Test
+    void compositeParametersAreKeptAsJson() throws Exception {
+        WebhookRequest request = read("""
+                {"queryResult": {"parameters": {"date-period": {"startDate": "2025-01-01", "endDate": "2025-01-31"}, "topics": ["tax", "nhif"]}}}
+                """);
+
+        assertEquals("{\"startDate\":\"2025-01-01\",\"endDate\":\"2025-01-31\"}", request.parameters().get("date-period"));
+        assertEquals("[\"tax\",\"nhif\"]", request.parameters().get("topics"));
+    }
+
+    @Test
+    void missingFieldsDefaultToEmpty() throws Exception {
+        WebhookRequest request = read("{}");
+
+        assertEquals("", request.intentName());
+        assertEquals("", request.sessionId());
+        assertEquals(Map.of(), request.parameters());
+    }
+
+    @Test
+    void malformedJsonIsRejected() {
+        assertThrows(JsonProcessingException.class, () -> read("{\"queryResult\": {\"intent\": "));
+        assertThrows(JsonProcessingException.class, () -> read("[1, 2]"));
+    }
+}
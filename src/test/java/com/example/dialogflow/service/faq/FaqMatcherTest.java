@@ -0,0 +1,46 @@
+package com.example.dialogflow.service.faq;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FaqMatcherTest {
+
+    private final FaqMatcher matcher = new FaqMatcher(List.of(
+            new FaqEntry("office-hours", List.of("office hours", "working hours"), "8am to 5pm"),
+            new FaqEntry("apply-leave", List.of("how do I apply for leave"), "Use the HR portal"),
+            new FaqEntry("leave", List.of("leave"), "Leave overview")));
+
+    @Test
+    void fillerWordsAndPunctuationDoNotLowerConfidence() {
+        FaqMatcher.Match match = matcher.match("What are the Office Hours?");
+
+        assertEquals("office-hours", match.entry().id());
+        assertEquals(1.0, match.confidence());
+    }
+
+    @Test
+    void longestPhraseWins() {
+        FaqMatcher.Match match = matcher.match("hi, how can I apply for leave please");
+
+        assertEquals("apply-leave", match.entry().id());
+        assertEquals(1.0, match.confidence());
+    }
+
+    @Test
+    void partialMatchHasLowerConfidence() {
+        FaqMatcher.Match match = matcher.match("can I change office hours for my team");
+
+        assertEquals("office-hours", match.entry().id());
+        assertEquals(0.5, match.confidence());
+    }
+
+    @Test
+    void unrelatedMessageDoesNotMatch() {
+        assertNull(matcher.match("what is my payroll deduction"));
+        assertNull(FaqMatcher.empty().match("office hours"));
+    }
+}
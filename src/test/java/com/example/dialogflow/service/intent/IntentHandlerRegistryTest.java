@@ -0,0 +1,72 @@
+package com.example.dialogflow.service.intent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IntentHandlerRegistryTest {
+
+    private static IntentHandler handler(String intent, List<String> required) {
+        return new IntentHandler() {
+            @Override
+            public String intentName() {
+                return intent;
+            }
+
+            @Override
+            public List<String> requiredParameters() {
+                return required;
+            }
+
+            @Override
+            public String missingParametersPrompt() {
+                return "missing " + required;
+            }
+
+            @Override
+            public String handle(IntentRequest request) {
+                return intent + ":" + request.parameter("leaveType");
+            }
+        };
+    }
+
+    private static IntentRequest request(String intent, Map<String, String> parameters) {
+        return new IntentRequest(intent, "s1", "E1", "text", parameters);
+    }
+
+    @Test
+    void dispatchesByIntentNameAndRecordsTiming() {
+        IntentHandlerRegistry registry = new IntentHandlerRegistry(List.of(
+                handler("LeavePolicyInquiry", List.of("leaveType")), handler("Other", List.of())));
+
+        assertEquals("LeavePolicyInquiry:annual",
+                registry.dispatch(request("LeavePolicyInquiry", Map.of("leaveType", "annual"))));
+        assertEquals(1, registry.getStats().stream()
+                .filter(s -> s.intent().equals("LeavePolicyInquiry")).findFirst().orElseThrow().calls());
+    }
+
+    @Test
+    void missingRequiredParameterReturnsPromptWithoutCallingHandler() {
+        IntentHandlerRegistry registry = new IntentHandlerRegistry(List.of(handler("LeavePolicyInquiry", List.of("leaveType"))));
+
+        assertEquals("missing [leaveType]", registry.dispatch(request("LeavePolicyInquiry", Map.of("leaveType", ""))));
+        assertEquals(0, registry.getStats().get(0).calls());
+    }
+
+    @Test
+    void unknownIntentGetsDefaultReply() {
+        IntentHandlerRegistry registry = new IntentHandlerRegistry(List.of());
+
+        assertEquals(IntentHandlerRegistry.UNHANDLED_INTENT_REPLY, registry.dispatch(request("Nope", Map.of())));
+    }
+
+    @Test
+    void duplicateIntentNamesFailAtStartup() {
+        assertThrows(IllegalStateException.class, () -> new IntentHandlerRegistry(List.of(
+                handler("Payroll_Query", List.of()), handler("Payroll_Query", List.of()))));
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.dialogflow.service.resilience;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DependencyGuardsTest {
+
+    private static DependencyGuards guards() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("resilience.yii2.sliding-window-size", "4")
+                .withProperty("resilience.yii2.minimum-calls", "4")
+                .withProperty("resilience.yii2.open-state-ms", "60000")
+                .withProperty("resilience.dialogflow.max-concurrent-calls", "1")
+                .withProperty("resilience.openai-stream.max-concurrent-calls", "1")
+                .withProperty("resilience.openai-stream.sliding-window-size", "4")
+                .withProperty("resilience.openai-stream.minimum-calls", "4");
+        return new DependencyGuards(environment);
+    }
+
+    private static void failWith(DependencyGuard guard, RuntimeException e) {
+        assertThrows(e.getClass(), () -> guard.call(() -> {
+            throw e;
+        }));
+    }
+
+    @Test
+    void circuitOpensAfterFailuresAndCallsAreRejectedWithoutRunning() {
+        DependencyGuard yii2 = guards().get(Dependency.YII2);
+        for (int i = 0; i < 4; i++) {
+            failWith(yii2, new ResourceAccessException("connect timed out"));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, yii2.getCircuitBreaker().getState());
+        DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class,
+                () -> yii2.call(() -> "never called"));
+        assertEquals(Dependency.YII2, e.getDependency());
+    }
+
+    @Test
+    void clientErrorsDoNotTripTheBreaker() {
+        DependencyGuard yii2 = guards().get(Dependency.YII2);
+        for (int i = 0; i < 8; i++) {
+            failWith(yii2, new HttpClientErrorException(HttpStatus.NOT_FOUND));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, yii2.getCircuitBreaker().getState());
+    }
+
+    @Test
+    void asyncBulkheadHoldsPermitUntilCompletion() throws Exception {
+        DependencyGuard dialogflow = guards().get(Dependency.DIALOGFLOW);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> inFlight = dialogflow.callAsync(() -> first);
+
+        ExecutionException rejected = assertThrows(ExecutionException.class,
+                () -> dialogflow.callAsync(() -> CompletableFuture.completedFuture("second")).get());
+        assertInstanceOf(DependencyUnavailableException.class, rejected.getCause());
+
+        first.complete("first");
+        assertEquals("first", inFlight.get());
+        assertEquals("third", dialogflow.callAsync(() -> CompletableFuture.completedFuture("third")).get());
+    }
+
+    @Test
+    void cancelledAsyncCallsAreNotCountedAsFailures() {
+        DependencyGuard dialogflow = guards().get(Dependency.DIALOGFLOW);
+        CompletableFuture<String> call = new CompletableFuture<>();
+        dialogflow.callAsync(() -> call);
+
+        call.cancel(true);
+
+        assertEquals(0, dialogflow.getCircuitBreaker().getMetrics().getNumberOfFailedCalls());
+        assertEquals(1, dialogflow.getBulkhead().getMetrics().getAvailableConcurrentCalls());
+    }
+
+    @Test
+    void streamReleasesItsPermitAtTheFirstToken() {
+        DependencyGuard stream = guards().get(Dependency.OPENAI_STREAM);
+
+        String answer = stream.callUntilFirstToken(firstToken -> {
+            firstToken.run();
+            // The rest of the stream no longer holds the bulkhead
+            assertEquals(1, stream.getBulkhead().getMetrics().getAvailableConcurrentCalls());
+            assertEquals("nested", stream.callUntilFirstToken(nested -> "nested"));
+            return "streamed";
+        });
+
+        assertEquals("streamed", answer);
+        assertEquals(2, stream.getCircuitBreaker().getMetrics().getNumberOfSuccessfulCalls());
+    }
+
+    @Test
+    void failuresAfterTheFirstTokenAndClientDisconnectsDoNotTripTheBreaker() {
+        DependencyGuard stream = guards().get(Dependency.OPENAI_STREAM);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> stream.callUntilFirstToken(firstToken -> {
+                firstToken.run();
+                throw new IllegalStateException("connection reset mid-stream");
+            }));
+            assertThrows(ClientDisconnectedException.class, () -> stream.callUntilFirstToken(firstToken -> {
+                throw new ClientDisconnectedException("SSE client disconnected", null);
+            }));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, stream.getCircuitBreaker().getState());
+        assertEquals(0, stream.getCircuitBreaker().getMetrics().getNumberOfFailedCalls());
+    }
+
+    @Test
+    void streamsThatFailBeforeTheirFirstTokenOpenTheStreamCircuit() {
+        DependencyGuard stream = guards().get(Dependency.OPENAI_STREAM);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ResourceAccessException.class, () -> stream.callUntilFirstToken(firstToken -> {
+                throw new ResourceAccessException("connect timed out");
+            }));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, stream.getCircuitBreaker().getState());
+        assertThrows(DependencyUnavailableException.class, () -> stream.callUntilFirstToken(firstToken -> "never"));
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.dialogflow.service.trace;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TraceBufferTest {
+
+    private static RequestTrace trace(String sessionId, String intent, long stageNanos) {
+        return new RequestTrace("webhook").sessionId(sessionId).intent(intent).stage("handler", stageNanos);
+    }
+
+    @Test
+    void keepsOnlyTheNewestTracesNewestFirst() {
+        TraceBuffer buffer = new TraceBuffer(4, 200, 0);
+        for (int i = 0; i < 10; i++) {
+            buffer.record(trace("s" + i, "Payroll_Query", 0));
+        }
+
+        List<TraceRecord> traces = buffer.query(null, null, null, 100);
+
+        assertEquals(List.of("s9", "s8", "s7", "s6"), traces.stream().map(TraceRecord::sessionId).toList());
+        assertEquals(10, buffer.recorded());
+    }
+
+    @Test
+    void filtersBySessionIntentAndLimit() {
+        TraceBuffer buffer = new TraceBuffer(16, 200, 0);
+        buffer.record(trace("a", "LeavePolicyInquiry", 0));
+        buffer.record(trace("b", "Payroll_Query", 0));
+        buffer.record(trace("a", "Payroll_Query", 0));
+        buffer.record(trace("a", "LeavePolicyInquiry", 0));
+
+        assertEquals(3, buffer.query("a", null, null, 100).size());
+        assertEquals(2, buffer.query(null, "Payroll_Query", null, 100).size());
+        assertEquals(1, buffer.query("a", "LeavePolicyInquiry", null, 1).size());
+        assertEquals(0, buffer.query(null, null, 60_000L, 100).size());
+    }
+
+    @Test
+    void stagesAddUpAndMessagesAreTruncated() {
+        TraceBuffer buffer = new TraceBuffer(8, 5, 0);
+        buffer.record(new RequestTrace("chat").message("how many leave days do I have")
+                .stage("yii2", 2_000_000).stage("yii2", 3_000_000));
+
+        TraceRecord record = buffer.query(null, null, null, 1).get(0);
+
+        assertEquals(5L, record.stageMillis().get("yii2"));
+        assertEquals("how m…", record.message());
+    }
+
+    @Test
+    void staticHelpersOnlyRecordWhileBound() {
+        RequestTrace trace = new RequestTrace("webhook");
+        RequestTrace.recordDownstream("yii2", "500");
+        try (RequestTrace.Scope ignored = trace.bind()) {
+            RequestTrace.recordDownstream("yii2", "200");
+        }
+        RequestTrace.recordDownstream("yii2", "503");
+
+        assertNull(RequestTrace.current());
+        TraceBuffer buffer = new TraceBuffer(8, 200, 0);
+        buffer.record(trace);
+        assertEquals("200", buffer.query(null, null, null, 1).get(0).downstream().get("yii2"));
+    }
+
+    @Test
+    void traceIsRecordedOnlyOnce() {
+        TraceBuffer buffer = new TraceBuffer(8, 200, 0);
+        RequestTrace trace = trace("a", "Payroll_Query", 0);
+
+        buffer.record(trace.outcome("ok"));
+        buffer.record(trace.outcome("timeout"));
+
+        assertEquals(1, buffer.recorded());
+        assertEquals("ok", buffer.query(null, null, null, 10).get(0).outcome());
+    }
+
+    @Test
+    void stagesFromSeveralThreadsAreAllCounted() throws InterruptedException {
+        RequestTrace trace = new RequestTrace("webhook");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4_000; i++) {
+            pool.execute(() -> trace.stage("yii2", 1_000_000).downstream("yii2", "200"));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        TraceBuffer buffer = new TraceBuffer(8, 200, 0);
+        buffer.record(trace);
+        assertEquals(4_000L, buffer.query(null, null, null, 1).get(0).stageMillis().get("yii2"));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.dialogflow.service.transcript;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranscriptWriterTest {
+
+    private final List<List<TranscriptTurn>> batches = new CopyOnWriteArrayList<>();
+
+    private TranscriptWriter.Sink recording() {
+        return turns -> batches.add(new ArrayList<>(turns));
+    }
+
+    private static TranscriptTurn turn(int n) {
+        return new TranscriptTurn(Instant.EPOCH, "chat", "s" + n, "E1", "intent", "message " + n, "reply", "ok", 5);
+    }
+
+    @Test
+    void fullBatchIsWrittenWithoutWaitingForTheInterval() throws Exception {
+        TranscriptWriter writer = new TranscriptWriter(recording(), () -> { }, true, 100, 3, 60_000, 0, 5_000);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(writer.submit(turn(i)));
+        }
+        awaitWritten(writer, 3);
+
+        assertEquals(1, batches.size());
+        assertEquals(List.of("s0", "s1", "s2"), batches.get(0).stream().map(TranscriptTurn::sessionId).toList());
+        writer.shutdown();
+    }
+
+    @Test
+    void partialBatchIsWrittenAfterTheFlushInterval() throws Exception {
+        TranscriptWriter writer = new TranscriptWriter(recording(), () -> { }, true, 100, 50, 20, 0, 5_000);
+
+        writer.submit(turn(1));
+        writer.submit(turn(2));
+        awaitWritten(writer, 2);
+
+        assertEquals(2, batches.stream().mapToInt(List::size).sum());
+        writer.shutdown();
+    }
+
+    @Test
+    void turnsAreShedWhenTheQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch writing = new CountDownLatch(1);
+        TranscriptWriter writer = new TranscriptWriter(turns -> {
+            writing.countDown();
+            awaitQuietly(release);
+            batches.add(new ArrayList<>(turns));
+        }, () -> { }, true, 2, 1, 10, 0, 5_000);
+
+        writer.submit(turn(0));
+        assertTrue(writing.await(5, TimeUnit.SECONDS)); // the writer is now stuck on turn 0
+        assertTrue(writer.submit(turn(1)));
+        assertTrue(writer.submit(turn(2)));
+        assertFalse(writer.submit(turn(3)));
+
+        assertEquals(1, writer.getStats().shed());
+        assertEquals(0, writer.getStats().backpressured());
+        release.countDown();
+        writer.shutdown();
+        assertEquals(3, writer.getStats().written());
+    }
+
+    @Test
+    void fullQueueWaitsForRoomWhenAnOfferTimeoutIsSet() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch writing = new CountDownLatch(1);
+        TranscriptWriter writer = new TranscriptWriter(turns -> {
+            writing.countDown();
+            awaitQuietly(release);
+        }, () -> { }, true, 1, 1, 10, 20, 5_000);
+
+        writer.submit(turn(0));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        assertTrue(writer.submit(turn(1)));
+        assertFalse(writer.submit(turn(2))); // waits 20 ms, then gives up
+
+        assertEquals(1, writer.getStats().backpressured());
+        assertEquals(1, writer.getStats().shed());
+        release.countDown();
+        writer.shutdown();
+    }
+
+    @Test
+    void shutdownWritesWhatIsStillQueuedAndStopsAccepting() {
+        TranscriptWriter writer = new TranscriptWriter(recording(), () -> { }, true, 100, 1_000, 60_000, 0, 5_000);
+
+        for (int i = 0; i < 5; i++) {
+            writer.submit(turn(i));
+        }
+        writer.shutdown();
+
+        assertEquals(5, batches.stream().mapToInt(List::size).sum());
+        assertFalse(writer.submit(turn(6)));
+        assertEquals(1, writer.getStats().shed());
+    }
+
+    @Test
+    void failedBatchIsCountedAndTheWriterKeepsGoing() throws Exception {
+        TranscriptWriter writer = new TranscriptWriter(turns -> {
+            if (turns.get(0).sessionId().equals("s0")) {
+                throw new IllegalStateException("database down");
+            }
+            batches.add(new ArrayList<>(turns));
+        }, () -> { throw new IllegalStateException("database down"); }, true, 100, 1, 10, 0, 5_000);
+
+        writer.submit(turn(0));
+        writer.submit(turn(1));
+        awaitWritten(writer, 1);
+
+        assertEquals(1, writer.getStats().failed());
+        writer.shutdown();
+    }
+
+    @Test
+    void disabledWriterDropsTurnsWithoutCounting() {
+        TranscriptWriter writer = new TranscriptWriter(recording(), () -> { }, false, 100, 10, 10, 0, 5_000);
+
+        assertFalse(writer.submit(turn(0)));
+
+        assertEquals(0, writer.getStats().shed());
+        writer.shutdown();
+        assertTrue(batches.isEmpty());
+    }
+
+    private static void awaitWritten(TranscriptWriter writer, long turns) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (writer.getStats().written() < turns && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(turns, writer.getStats().written());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.dialogflow.service.user;
+
+import com.example.dialogflow.dto.BulkProvisioningReport;
+import com.example.dialogflow.dto.BulkProvisioningReport.Status;
+import com.example.dialogflow.model.repository.UserBatchRepository.InsertOutcome;
+import com.example.dialogflow.model.repository.UserBatchRepository.NewUserRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkUserProvisioningServiceTest {
+
+    private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(4);
+    private final ExecutorService hashPool = Executors.newFixedThreadPool(4);
+    private final List<List<NewUserRow>> chunks = new ArrayList<>();
+    private final Set<String> takenEmails = new HashSet<>(Set.of("taken@example.com"));
+    private final AtomicLong ids = new AtomicLong(100);
+
+    // Behaves like ON CONFLICT DO NOTHING on a unique email
+    private List<InsertOutcome> write(List<NewUserRow> rows) {
+        chunks.add(rows);
+        List<InsertOutcome> outcomes = new ArrayList<>();
+        for (NewUserRow row : rows) {
+            outcomes.add(takenEmails.add(row.email())
+                    ? new InsertOutcome(ids.incrementAndGet(), List.of())
+                    : new InsertOutcome(null, List.of("email")));
+        }
+        return outcomes;
+    }
+
+    private BulkUserProvisioningService service(int chunkSize) {
+        return service(chunkSize, 1000);
+    }
+
+    private BulkUserProvisioningService service(int chunkSize, int maxReportedRows) {
+        return new BulkUserProvisioningService(this::write, encoder, new ObjectMapper(), chunkSize, maxReportedRows,
+                hashPool);
+    }
+
+    private static ByteArrayInputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String user(String email) {
+        return "{\"email\":\"" + email + "\",\"password\":\"pw-" + email + "\",\"name\":\"N\",\"location\":\"Nairobi\"}";
+    }
+
+    @AfterEach
+    void stop() {
+        hashPool.shutdownNow();
+    }
+
+    @Test
+    void insertsInChunksWithHashedPasswords() throws Exception {
+        BulkProvisioningReport report = service(2).provision(ndjson(user("a@x.io"), user("b@x.io"), user("c@x.io")));
+
+        assertEquals(3, report.created());
+        assertEquals(List.of(2, 1), chunks.stream().map(List::size).toList());
+        NewUserRow first = chunks.get(0).get(0);
+        assertTrue(encoder.matches("pw-a@x.io", first.passwordHash()));
+        assertTrue(report.problems().isEmpty());
+    }
+
+    @Test
+    void conflictsAndBadLinesAreReportedPerRowWithoutStoppingTheRest() throws Exception {
+        BulkProvisioningReport report = service(10).provision(ndjson(
+                user("taken@example.com"),
+                "{not json",
+                "",
+                "{\"email\":\"d@x.io\",\"name\":\"N\"}",
+                user("e@x.io"),
+                user("e@x.io")));
+
+        assertEquals(5, report.total());
+        assertEquals(1, report.created());
+        assertEquals(2, report.conflicts());
+        assertEquals(2, report.invalid());
+        assertEquals(List.of(1, 2, 4, 6), report.problems().stream().map(BulkProvisioningReport.Row::line).toList());
+        assertEquals(Status.CONFLICT, report.problems().get(0).status());
+        assertEquals("email already taken", report.problems().get(0).message());
+        assertEquals(Status.INVALID, report.problems().get(1).status());
+    }
+
+    @Test
+    void failedChunkIsReportedAndLaterChunksStillRun() throws Exception {
+        BulkUserProvisioningService service = new BulkUserProvisioningService(rows -> {
+            if (chunks.isEmpty()) {
+                chunks.add(rows);
+                throw new DataAccessResourceFailureException("connection reset");
+            }
+            return write(rows);
+        }, encoder, new ObjectMapper(), 1, 1000, hashPool);
+
+        BulkProvisioningReport report = service.provision(ndjson(user("a@x.io"), user("b@x.io")));
+
+        assertEquals(Status.FAILED, report.problems().get(0).status());
+        assertEquals(1, report.problems().size());
+        assertEquals(1, report.created());
+    }
+
+    @Test
+    void onlyTheFirstProblemRowsAreListed() throws Exception {
+        BulkProvisioningReport report = service(10, 2).provision(ndjson(
+                "{bad", user("a@x.io"), "{bad", "{bad", user("taken@example.com")));
+
+        assertEquals(5, report.total());
+        assertEquals(4, report.invalid() + report.conflicts());
+        assertEquals(List.of(1, 3), report.problems().stream().map(BulkProvisioningReport.Row::line).toList());
+        assertEquals(2, report.problemsNotListed());
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.dialogflow.service.user;
+
+import com.example.dialogflow.dto.Pagination;
+import com.example.dialogflow.dto.UserSummary;
+import com.example.dialogflow.model.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserDirectoryServiceTest {
+
+    private List<UserSummary> table = users(1, 5);
+    private long reltuples = 5;
+    private final AtomicInteger exactCounts = new AtomicInteger();
+    private final List<Pageable> pageRequests = new ArrayList<>();
+    private final AtomicBoolean streamClosed = new AtomicBoolean();
+    private final List<TransactionDefinition> transactions = new ArrayList<>();
+
+    private static List<UserSummary> users(int fromId, int toId) {
+        return IntStream.rangeClosed(fromId, toId)
+                .mapToObj(id -> new UserSummary(id, "u" + id + "@x.io", "User " + id, "u" + id, null, "Nairobi",
+                        null, true, null, null))
+                .toList();
+    }
+
+    // Answers the repository queries UserDirectoryService uses from the in-memory table
+    private UserRepository repository() {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findSummariesAfter" -> {
+                        Pageable limit = (Pageable) args[1];
+                        pageRequests.add(limit);
+                        yield table.stream().filter(u -> u.id() > (int) args[0]).limit(limit.getPageSize()).toList();
+                    }
+                    case "findSummaries" -> {
+                        Pageable page = (Pageable) args[0];
+                        pageRequests.add(page);
+                        yield table.stream().skip(page.getOffset()).limit(page.getPageSize()).toList();
+                    }
+                    case "streamSummariesAfter" -> table.stream()
+                            .filter(u -> u.id() > (int) args[0])
+                            .onClose(() -> streamClosed.set(true));
+                    case "approximateCount" -> reltuples;
+                    case "count" -> {
+                        exactCounts.incrementAndGet();
+                        yield (long) table.size();
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private final PlatformTransactionManager transactionManager = new PlatformTransactionManager() {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            transactions.add(definition);
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    };
+
+    private UserDirectoryService service(int maxPageSize) {
+        return new UserDirectoryService(repository(), new ObjectMapper().findAndRegisterModules(), transactionManager,
+                maxPageSize);
+    }
+
+    @Test
+    void keysetPagesWalkTheTableAndEndWithoutANextId() {
+        UserDirectoryService service = service(500);
+
+        UserDirectoryService.KeysetPage first = service.listAfter(0, 2);
+        UserDirectoryService.KeysetPage second = service.listAfter(first.nextAfterId(), 2);
+        UserDirectoryService.KeysetPage last = service.listAfter(second.nextAfterId(), 2);
+
+        assertEquals(2, first.nextAfterId());
+        assertEquals(4, second.nextAfterId());
+        assertEquals(List.of(5), last.users().stream().map(UserSummary::id).toList());
+        assertNull(last.nextAfterId());
+    }
+
+    @Test
+    void pageSizeIsClampedToTheConfiguredRange() {
+        UserDirectoryService service = service(3);
+
+        assertEquals(3, service.listAfter(0, 10_000).pageSize());
+        assertEquals(1, service.listAfter(0, 0).pageSize());
+        assertEquals(List.of(3, 1), pageRequests.stream().map(Pageable::getPageSize).toList());
+        assertTrue(pageRequests.stream().allMatch(page -> page.getOffset() == 0)); // never an OFFSET
+    }
+
+    @Test
+    void offsetPagesKeepTheOldPaginationShapeWithOneBasedPages() {
+        UserDirectoryService.OffsetPage page = service(500).listPage(2, 2);
+
+        assertEquals(List.of(3, 4), page.users().stream().map(UserSummary::id).toList());
+        assertEquals(new Pagination(2, 2, 3, 5), page.pagination());
+        assertEquals(4, page.nextAfterId());
+        assertEquals(2, pageRequests.get(0).getOffset());
+    }
+
+    @Test
+    void pageNumbersBelowOneMeanTheFirstPage() {
+        UserDirectoryService.OffsetPage page = service(500).listPage(0, 2);
+
+        assertEquals(1, page.pagination().getPage());
+        assertEquals(List.of(1, 2), page.users().stream().map(UserSummary::id).toList());
+    }
+
+    @Test
+    void totalIsNeverLowerThanTheRowsAlreadySeen() {
+        table = users(1, 30);
+        reltuples = 10; // stale statistics after a bulk load
+
+        Pagination pagination = service(500).listPage(3, 10).pagination();
+
+        assertEquals(30, pagination.getTotalCount());
+        assertEquals(3, pagination.getTotalPages());
+    }
+
+    @Test
+    void approximateCountUsesPlannerStatisticsAndFallsBackWhenNeverAnalyzed() {
+        UserDirectoryService service = service(500);
+        reltuples = 4_200;
+        assertEquals(4_200, service.approximateCount());
+        assertEquals(0, exactCounts.get());
+
+        reltuples = -1;
+        assertEquals(5, service.approximateCount());
+        assertEquals(1, exactCounts.get());
+    }
+
+    @Test
+    void streamWritesOneJsonObjectPerLineInAReadOnlyTransaction() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = service(500).streamAfter(3, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertEquals(2, rows);
+        assertEquals(3, lines.length); // two rows, each newline-terminated
+        assertEquals("", lines[2]);
+        assertEquals(4, new ObjectMapper().readTree(lines[0]).get("id").asInt());
+        assertEquals(5, new ObjectMapper().readTree(lines[1]).get("id").asInt());
+        assertTrue(streamClosed.get());
+        assertTrue(transactions.get(0).isReadOnly());
+    }
+
+    @Test
+    void emptyStreamWritesNothing() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, service(500).streamAfter(5, out));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void clientWriteFailureSurfacesAsTheOriginalIOException() {
+        IOException gone = new IOException("Broken pipe");
+        OutputStream brokenClient = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw gone;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw gone;
+            }
+        };
+
+        IOException thrown = assertThrows(IOException.class, () -> service(500).streamAfter(0, brokenClient));
+
+        assertEquals("Broken pipe", thrown.getMessage());
+        assertTrue(streamClosed.get());
+    }
+}
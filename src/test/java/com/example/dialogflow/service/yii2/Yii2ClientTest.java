@@ -0,0 +1,69 @@
+package com.example.dialogflow.service.yii2;
+
+import com.example.dialogflow.service.resilience.DependencyGuards;
+import com.example.dialogflow.utils.Deadline;
+import com.example.dialogflow.utils.RetryBudget;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class Yii2ClientTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Yii2Client client() {
+        Map<Yii2Endpoint, Long> ttls = new EnumMap<>(Yii2Endpoint.class);
+        ttls.put(Yii2Endpoint.PAYROLL, 60_000L);
+        RestTemplate yii2 = new RestTemplate() {
+            @Override
+            public <T> ResponseEntity<T> getForEntity(URI url, Class<T> responseType) {
+                return ResponseEntity.ok(responseType.cast(TextNode.valueOf("answer " + calls.incrementAndGet())));
+            }
+        };
+        return new Yii2Client(yii2, new Yii2ResponseCache(100, ttls, 0, 10_000, System::currentTimeMillis, executor),
+                "http://yii2.invalid", new SimpleMeterRegistry(), new DependencyGuards(new StandardEnvironment()),
+                new Yii2ReadPolicy(new RetryBudget(0.1, 10), executor, 1, 1, 1, false, 20, 5), null);
+    }
+
+    @Test
+    void cacheableReadsAreServedFromTheCache() {
+        Yii2Client client = client();
+
+        client.get(Yii2Endpoint.PAYROLL, "E1", "pay dates", Deadline.none(), true);
+        JsonNode second = client.get(Yii2Endpoint.PAYROLL, "E1", "pay dates", Deadline.none(), true);
+
+        assertEquals("answer 1", second.asText());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void nonCacheableReadsAlwaysGoToYii2() {
+        Yii2Client client = client();
+
+        client.get(Yii2Endpoint.PAYROLL, "E1", "pay dates", Deadline.none(), true);
+        JsonNode fresh = client.get(Yii2Endpoint.PAYROLL, "E1", "pay dates", Deadline.none(), false);
+
+        assertEquals("answer 2", fresh.asText());
+        assertEquals(2, calls.get());
+    }
+}
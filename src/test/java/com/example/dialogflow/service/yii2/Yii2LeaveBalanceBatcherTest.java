@@ -0,0 +1,184 @@
+package com.example.dialogflow.service.yii2;
+
+import com.example.dialogflow.service.resilience.Dependency;
+import com.example.dialogflow.service.resilience.DependencyGuards;
+import com.example.dialogflow.service.trace.RequestTrace;
+import com.example.dialogflow.service.trace.TraceBuffer;
+import com.example.dialogflow.service.trace.TraceRecord;
+import com.example.dialogflow.utils.Deadline;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Yii2LeaveBalanceBatcherTest {
+
+    private HttpServer server;
+    private final List<String> batchQueries = new CopyOnWriteArrayList<>();
+    private volatile int batchStatus = 200;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private Yii2LeaveBalanceBatcher batcher;
+
+    // Stub of Yii2's batch endpoint: answers {"E1": {"employee": "E1", "leavetype": ...}, ...}, leaving out "MISSING"
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/leavebalances/batch", exchange -> {
+            String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), StandardCharsets.UTF_8);
+            batchQueries.add(query);
+            StringBuilder body = new StringBuilder("{");
+            String leaveType = query.replaceAll(".*leavetype=([^&]*).*", "$1");
+            for (String employee : query.replaceAll(".*employees=([^&]*).*", "$1").split(",")) {
+                if (!employee.equals("MISSING")) {
+                    body.append(body.length() > 1 ? "," : "").append('"').append(employee).append("\":{\"employee\":\"")
+                            .append(employee).append("\",\"leavetype\":\"").append(leaveType).append("\"}");
+                }
+            }
+            byte[] bytes = body.append('}').toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(batchStatus, batchStatus == 200 ? bytes.length : -1);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (batchStatus == 200) {
+                    out.write(bytes);
+                }
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+    }
+
+    private Yii2LeaveBalanceBatcher batcher(long windowMillis, int maxBatchSize) {
+        batcher = new Yii2LeaveBalanceBatcher(new RestTemplate(),
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/leavebalances/batch", "employees",
+                new DependencyGuards(new MockEnvironment()).get(Dependency.YII2), new SimpleMeterRegistry(),
+                executor, true, windowMillis, maxBatchSize, 60_000, System::currentTimeMillis);
+        return batcher;
+    }
+
+    private static JsonNode single(String employeeId) {
+        return JsonNodeFactory.instance.objectNode().put("employee", employeeId).put("source", "single");
+    }
+
+    // Starts every lookup at once and waits for all answers
+    private List<JsonNode> lookUpConcurrently(Yii2LeaveBalanceBatcher batcher, String leaveType, String... employees)
+            throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<JsonNode>> futures = new ArrayList<>();
+        for (String employee : employees) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return batcher.lookup(employee, leaveType, Deadline.none(), null, () -> single(employee));
+            }));
+        }
+        start.countDown();
+        List<JsonNode> results = new ArrayList<>();
+        for (Future<JsonNode> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    @Test
+    void concurrentLookupsShareOneBatchCallAndGetTheirOwnEntry() throws Exception {
+        List<JsonNode> results = lookUpConcurrently(batcher(200, 50), "annual", "E1", "E2", "E3");
+
+        assertEquals(1, batchQueries.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("E" + (i + 1), results.get(i).get("employee").asText());
+            assertEquals("annual", results.get(i).get("leavetype").asText());
+        }
+        assertEquals(3, batcher.getStats().lookups());
+    }
+
+    @Test
+    void batchCallIsRecordedInEveryCallersTrace() throws Exception {
+        Yii2LeaveBalanceBatcher batcher = batcher(10_000, 2);
+        RequestTrace first = new RequestTrace("webhook").sessionId("s1");
+        RequestTrace second = new RequestTrace("webhook").sessionId("s2");
+
+        Future<JsonNode> one = executor.submit(
+                () -> batcher.lookup("E1", "annual", Deadline.none(), first, () -> single("E1")));
+        Future<JsonNode> two = executor.submit(
+                () -> batcher.lookup("E2", "annual", Deadline.none(), second, () -> single("E2")));
+        one.get();
+        two.get();
+
+        TraceBuffer buffer = new TraceBuffer(8, 200, 0);
+        buffer.record(first);
+        buffer.record(second);
+        for (TraceRecord record : buffer.query(null, null, null, 10)) {
+            assertEquals("200", record.downstream().get("yii2"));
+            assertTrue(record.stageMillis().containsKey("yii2.leave_balances_batch"));
+        }
+        assertEquals(1, batchQueries.size());
+    }
+
+    @Test
+    void fullBatchIsSentWithoutWaitingForTheWindow() throws Exception {
+        long start = System.nanoTime();
+        lookUpConcurrently(batcher(10_000, 2), "sick", "E1", "E2");
+
+        assertEquals(1, batchQueries.size());
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+    }
+
+    @Test
+    void employeeMissingFromTheBatchFallsBackToASingleCall() throws Exception {
+        List<JsonNode> results = lookUpConcurrently(batcher(100, 50), "annual", "E1", "MISSING");
+
+        assertEquals("annual", results.get(0).get("leavetype").asText());
+        assertEquals("single", results.get(1).get("source").asText());
+        assertEquals(1, batcher.getStats().fallbacks());
+    }
+
+    @Test
+    void unavailableBatchEndpointSwitchesToSingleCalls() throws Exception {
+        batchStatus = 404;
+        Yii2LeaveBalanceBatcher batcher = batcher(20, 50);
+
+        List<JsonNode> first = lookUpConcurrently(batcher, "annual", "E1", "E2");
+        AtomicInteger singles = new AtomicInteger();
+        JsonNode second = batcher.lookup("E3", "annual", Deadline.none(), null, () -> {
+            singles.incrementAndGet();
+            return single("E3");
+        });
+
+        assertEquals("single", first.get(0).get("source").asText());
+        assertEquals("single", first.get(1).get("source").asText());
+        assertEquals("single", second.get("source").asText());
+        assertEquals(1, batchQueries.size());
+        assertEquals(1, singles.get());
+        assertFalse(batcher.getStats().batchEndpointAvailable());
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.dialogflow.service.yii2;
+
+import com.example.dialogflow.dto.WebhookRequest;
+import com.example.dialogflow.service.WebhookRequestReader;
+import com.example.dialogflow.service.intent.IntentHandler;
+import com.example.dialogflow.service.intent.IntentRequest;
+import com.example.dialogflow.service.intent.LeavePolicyIntentHandler;
+import com.example.dialogflow.service.intent.PayrollQueryIntentHandler;
+import com.example.dialogflow.service.resilience.DependencyGuards;
+import com.example.dialogflow.utils.Deadline;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Yii2PrefetcherTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final List<String> fetched = new ArrayList<>();
+
+    private Yii2Prefetcher prefetcher(Yii2Prefetcher.Fetcher fetcher, ExecutorService executor) {
+        return new Yii2Prefetcher(fetcher, true, List.of("annual", "sick"), List.of("pay dates"),
+                60_000, now::get, executor);
+    }
+
+    private Yii2Prefetcher.Fetcher recording() {
+        return (endpoint, employeeId, parameter) -> fetched.add(endpoint + ":" + employeeId + ":" + parameter);
+    }
+
+    @Test
+    void loadsLeaveBalancesAndPayrollForTheEmployee() {
+        Yii2Prefetcher prefetcher = prefetcher(recording(), new DirectExecutor(false));
+
+        assertTrue(prefetcher.prefetch("E1"));
+
+        assertEquals(List.of("LEAVE_BALANCES:E1:annual", "LEAVE_BALANCES:E1:sick", "PAYROLL:E1:pay dates"), fetched);
+        assertEquals(3, prefetcher.getStats().fetched());
+    }
+
+    @Test
+    void sameEmployeeIsPrefetchedOncePerDedupeWindow() {
+        Yii2Prefetcher prefetcher = prefetcher(recording(), new DirectExecutor(false));
+
+        assertTrue(prefetcher.prefetch("E1"));
+        now.addAndGet(59_000);
+        assertFalse(prefetcher.prefetch("E1"));
+        assertTrue(prefetcher.prefetch("E2"));
+        now.addAndGet(1_000);
+        assertTrue(prefetcher.prefetch("E1"));
+
+        assertEquals(3, prefetcher.getStats().scheduled());
+        assertEquals(1, prefetcher.getStats().deduplicated());
+    }
+
+    @Test
+    void failedCallsAreCountedAndTheRestStillRun() {
+        Yii2Prefetcher prefetcher = prefetcher((endpoint, employeeId, parameter) -> {
+            if (endpoint == Yii2Endpoint.LEAVE_BALANCES) {
+                throw new IllegalStateException("Yii2 down");
+            }
+            fetched.add(parameter);
+        }, new DirectExecutor(false));
+
+        prefetcher.prefetch("E1");
+
+        assertEquals(List.of("pay dates"), fetched);
+        assertEquals(2, prefetcher.getStats().failures());
+        assertEquals(1, prefetcher.getStats().fetched());
+    }
+
+    @Test
+    void droppedWhenQueueIsFullAndRetriedByTheNextSession() {
+        DirectExecutor executor = new DirectExecutor(true);
+        Yii2Prefetcher prefetcher = prefetcher(recording(), executor);
+
+        assertFalse(prefetcher.prefetch("E1"));
+        executor.rejecting = false;
+        assertTrue(prefetcher.prefetch("E1"));
+
+        assertEquals(1, prefetcher.getStats().dropped());
+        assertEquals(3, fetched.size());
+    }
+
+    @Test
+    void prefetchedKeysAreTheOnesWebhookRequestsLookUp() throws Exception {
+        Set<Yii2ResponseCache.Key> prefetched = new LinkedHashSet<>();
+        Yii2Prefetcher prefetcher = new Yii2Prefetcher(
+                (endpoint, employeeId, parameter) -> prefetched.add(Yii2Client.cacheKey(endpoint, employeeId, parameter)),
+                true, List.of(LeavePolicyIntentHandler.ANNUAL, LeavePolicyIntentHandler.SICK),
+                List.of(PayrollQueryIntentHandler.PAY_DATES, PayrollQueryIntentHandler.PAY_STUBS),
+                60_000, now::get, new DirectExecutor(false));
+        prefetcher.prefetch("E1");
+
+        RecordingYii2Client yii2Client = new RecordingYii2Client();
+        LeavePolicyIntentHandler leavePolicy = new LeavePolicyIntentHandler(yii2Client);
+        PayrollQueryIntentHandler payroll = new PayrollQueryIntentHandler(yii2Client);
+        handleWebhook(leavePolicy, "LeavePolicyInquiry", "leaveType", "annual");
+        handleWebhook(leavePolicy, "LeavePolicyInquiry", "leaveType", "sick");
+        handleWebhook(payroll, "Payroll_Query", "payrollTopic", "pay dates");
+        handleWebhook(payroll, "Payroll_Query", "payrollTopic", "pay stubs");
+
+        assertEquals(4, prefetched.size());
+        assertEquals(prefetched, yii2Client.requested);
+    }
+
+    // Parses a webhook body the way ChatController does and hands it to the intent's handler
+    private static void handleWebhook(IntentHandler handler, String intent, String parameter, String value)
+            throws Exception {
+        String body = "{\"session\":\"projects/hr-bot/agent/sessions/s1\",\"queryResult\":{"
+                + "\"queryText\":\"question\",\"parameters\":{\"" + parameter + "\":\"" + value + "\"},"
+                + "\"intent\":{\"displayName\":\"" + intent + "\"}}}";
+        WebhookRequest webhook = new WebhookRequestReader(new ObjectMapper())
+                .read(body.getBytes(StandardCharsets.UTF_8));
+        handler.handle(new IntentRequest(webhook.intentName(), webhook.sessionId(), "E1", webhook.queryText(),
+                webhook.parameters()));
+    }
+
+    // Records the cache key of every lookup instead of calling Yii2
+    private static final class RecordingYii2Client extends Yii2Client {
+        final Set<Yii2ResponseCache.Key> requested = new LinkedHashSet<>();
+
+        RecordingYii2Client() {
+            super(null, null, "http://yii2.invalid", null, new DependencyGuards(new StandardEnvironment()), null, null);
+        }
+
+        @Override
+        public JsonNode get(Yii2Endpoint endpoint, String employeeId, String parameter, Deadline deadline,
+                            boolean cacheable) {
+            requested.add(cacheKey(endpoint, employeeId, parameter));
+            return null;
+        }
+    }
+
+    // Runs tasks on the calling thread, or rejects them like a full ThreadPoolExecutor queue
+    private static final class DirectExecutor extends AbstractExecutorService {
+        boolean rejecting;
+
+        DirectExecutor(boolean rejecting) {
+            this.rejecting = rejecting;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (rejecting) {
+                throw new RejectedExecutionException("queue full");
+            }
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.dialogflow.service.yii2;
+
+import com.example.dialogflow.service.resilience.Dependency;
+import com.example.dialogflow.service.resilience.DependencyUnavailableException;
+import com.example.dialogflow.utils.Deadline;
+import com.example.dialogflow.utils.RetryBudget;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class Yii2ReadPolicyTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Yii2ReadPolicy policy(RetryBudget budget, boolean hedging) {
+        return new Yii2ReadPolicy(budget, executor, 3, 1, 2, hedging, 20, 5);
+    }
+
+    @Test
+    void transientFailuresAreRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        String result = policy(new RetryBudget(0.1, 10), false).execute(Yii2Endpoint.PAYROLL, Deadline.none(), () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void clientErrorsAndOpenCircuitsAreNotRetried() {
+        Yii2ReadPolicy policy = policy(new RetryBudget(0.1, 10), false);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(HttpClientErrorException.class, () -> policy.execute(Yii2Endpoint.PAYROLL, Deadline.none(), () -> {
+            attempts.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+        }));
+        assertThrows(DependencyUnavailableException.class, () -> policy.execute(Yii2Endpoint.PAYROLL, Deadline.none(), () -> {
+            attempts.incrementAndGet();
+            throw new DependencyUnavailableException(Dependency.YII2, "circuit open", null);
+        }));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void exhaustedBudgetStopsRetries() {
+        AtomicInteger attempts = new AtomicInteger();
+        assertThrows(ResourceAccessException.class, () -> policy(new RetryBudget(0, 1), false)
+                .execute(Yii2Endpoint.LEAVE_BALANCES, Deadline.none(), () -> {
+                    attempts.incrementAndGet();
+                    throw new ResourceAccessException("connection reset");
+                }));
+
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void expiredDeadlineStopsRetries() {
+        AtomicInteger attempts = new AtomicInteger();
+        assertThrows(ResourceAccessException.class, () -> policy(new RetryBudget(0.1, 10), false)
+                .execute(Yii2Endpoint.LEAVE_BALANCES, Deadline.after(Duration.ZERO), () -> {
+                    attempts.incrementAndGet();
+                    throw new ResourceAccessException("connection reset");
+                }));
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void slowPrimaryIsHedgedAndTheFasterAnswerWins() {
+        Yii2ReadPolicy policy = policy(new RetryBudget(0.1, 10), true);
+        for (int i = 0; i < 5; i++) {
+            policy.execute(Yii2Endpoint.HR_CONTACTS, Deadline.none(), () -> "warm-up");
+        }
+
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        String result = policy.execute(Yii2Endpoint.HR_CONTACTS, Deadline.after(Duration.ofSeconds(5)), () -> {
+            if (attempts.incrementAndGet() == 1) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "primary";
+            }
+            return "hedge";
+        });
+        release.countDown();
+
+        assertEquals("hedge", result);
+        assertEquals(1, policy.getStats().hedges());
+    }
+
+    @Test
+    void hedgedCallGivesUpAtTheDeadline() {
+        Yii2ReadPolicy policy = policy(new RetryBudget(0.1, 0), true);
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertThrows(ResourceAccessException.class, () -> policy.execute(Yii2Endpoint.PAYROLL,
+                Deadline.after(Duration.ofMillis(50)), () -> {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "late";
+                }));
+        release.countDown();
+        assertEquals(1, policy.getStats().deadlineExceeded());
+    }
+}
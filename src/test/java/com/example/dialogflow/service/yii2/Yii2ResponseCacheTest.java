@@ -0,0 +1,108 @@
+package com.example.dialogflow.service.yii2;
+
+import com.example.dialogflow.utils.Deadline;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Yii2ResponseCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor();
+
+    private Yii2ResponseCache cache(int maxEntries) {
+        Map<Yii2Endpoint, Long> ttls = new EnumMap<>(Yii2Endpoint.class);
+        ttls.put(Yii2Endpoint.LEAVE_BALANCES, 1_000L);
+        ttls.put(Yii2Endpoint.HR_CONTACTS, 1_000L);
+        return new Yii2ResponseCache(maxEntries, ttls, 5_000L, 10_000L, now::get, refreshExecutor);
+    }
+
+    private static Yii2ResponseCache.Key key(String employeeId) {
+        return new Yii2ResponseCache.Key(Yii2Endpoint.LEAVE_BALANCES, employeeId, "annual");
+    }
+
+    @Test
+    void freshEntryIsServedWithoutCallingLoader() {
+        Yii2ResponseCache cache = cache(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(key("E1"), Deadline.none(), deadline -> TextNode.valueOf("v" + loads.incrementAndGet()));
+        JsonNode second = cache.get(key("E1"), Deadline.none(), deadline -> TextNode.valueOf("v" + loads.incrementAndGet()));
+
+        assertEquals("v1", second.asText());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void staleEntryIsServedWhileRefreshRunsInBackground() throws InterruptedException {
+        Yii2ResponseCache cache = cache(10);
+        cache.get(key("E1"), Deadline.none(), deadline -> TextNode.valueOf("old"));
+
+        now.addAndGet(2_000);
+        JsonNode stale = cache.get(key("E1"), Deadline.none(), deadline -> TextNode.valueOf("new"));
+        refreshExecutor.shutdown();
+        refreshExecutor.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertEquals("old", stale.asText());
+        assertEquals("new", cache.get(key("E1"), Deadline.none(), deadline -> TextNode.valueOf("unused")).asText());
+        assertEquals(1, cache.getStats().staleHits());
+    }
+
+    @Test
+    void backgroundRefreshGetsItsOwnDeadlineRatherThanTheCallers() throws InterruptedException {
+        Yii2ResponseCache cache = cache(10);
+        cache.get(key("E1"), Deadline.none(), deadline -> TextNode.valueOf("old"));
+
+        now.addAndGet(2_000);
+        AtomicReference<Deadline> refreshDeadline = new AtomicReference<>();
+        Deadline expired = Deadline.after(Duration.ZERO);
+        cache.get(key("E1"), expired, deadline -> {
+            refreshDeadline.set(deadline);
+            return TextNode.valueOf("new");
+        });
+        refreshExecutor.shutdown();
+        refreshExecutor.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertTrue(refreshDeadline.get().isBounded());
+        assertFalse(refreshDeadline.get().isExpired());
+        assertTrue(refreshDeadline.get().remainingNanos() <= TimeUnit.MILLISECONDS.toNanos(10_000));
+    }
+
+    @Test
+    void entryPastStaleWindowIsReloadedInline() {
+        Yii2ResponseCache cache = cache(10);
+        cache.get(key("E1"), Deadline.none(), deadline -> TextNode.valueOf("old"));
+
+        now.addAndGet(10_000);
+
+        assertEquals("new", cache.get(key("E1"), Deadline.none(), deadline -> TextNode.valueOf("new")).asText());
+    }
+
+    @Test
+    void nullResponsesAreNotCachedAndSizeIsBounded() {
+        Yii2ResponseCache cache = cache(2);
+        assertNull(cache.get(key("E0"), Deadline.none(), deadline -> null));
+
+        cache.get(key("E1"), Deadline.none(), deadline -> TextNode.valueOf("1"));
+        cache.get(key("E2"), Deadline.none(), deadline -> TextNode.valueOf("2"));
+        cache.get(key("E3"), Deadline.none(), deadline -> TextNode.valueOf("3"));
+
+        assertEquals(2, cache.getStats().size());
+        assertEquals(1, cache.getStats().evictions());
+    }
+}
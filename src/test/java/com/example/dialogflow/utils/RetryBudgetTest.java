@@ -0,0 +1,42 @@
+package com.example.dialogflow.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBudgetTest {
+
+    @Test
+    void reserveIsSpentThenRetriesAreEarnedByRequests() {
+        RetryBudget budget = new RetryBudget(0.1, 2);
+
+        assertTrue(budget.tryAcquireRetry());
+        assertTrue(budget.tryAcquireRetry());
+        assertFalse(budget.tryAcquireRetry());
+
+        for (int i = 0; i < 9; i++) {
+            budget.recordRequest();
+        }
+        assertFalse(budget.tryAcquireRetry());
+        budget.recordRequest();
+        assertTrue(budget.tryAcquireRetry());
+
+        RetryBudget.Stats stats = budget.getStats();
+        assertEquals(10, stats.requests());
+        assertEquals(3, stats.retries());
+        assertEquals(2, stats.exhausted());
+    }
+
+    @Test
+    void balanceNeverExceedsTheReserve() {
+        RetryBudget budget = new RetryBudget(0.5, 1);
+        for (int i = 0; i < 100; i++) {
+            budget.recordRequest();
+        }
+
+        assertTrue(budget.tryAcquireRetry());
+        assertFalse(budget.tryAcquireRetry());
+    }
+}